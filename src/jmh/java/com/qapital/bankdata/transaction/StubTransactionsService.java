@@ -0,0 +1,51 @@
+package com.qapital.bankdata.transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Returns the same pre-generated history for every user, so benchmarks measure
+ * rule evaluation and not the bank data call.
+ */
+public class StubTransactionsService implements TransactionsService {
+
+    static final String[] DESCRIPTIONS = {
+            "Starbucks", "McDonald's", "Apple Itunes", "Amazon", "Walmart", "Papa Joe's", "Espresso House", "Salary"
+    };
+
+    private final List<Transaction> transactions;
+
+    public StubTransactionsService(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * @param userId user the transactions belong to
+     * @param numberOfTransactions history size
+     * @param seed seed of the generator, same seed gives the same history
+     * @return service returning a deterministic history of given size
+     */
+    public static StubTransactionsService withHistory(Long userId, int numberOfTransactions, long seed) {
+        Random random = new Random(seed);
+        LocalDate start = LocalDate.of(2015, 1, 1);
+        List<Transaction> transactions = new ArrayList<>(numberOfTransactions);
+        for (int i = 0; i < numberOfTransactions; i++) {
+            String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+            BigDecimal amount = "Salary".equals(description)
+                    ? BigDecimal.valueOf(150000 + random.nextInt(100000), 2)
+                    : BigDecimal.valueOf(-(1 + random.nextInt(10000)), 2);
+            transactions.add(new Transaction((long) i + 1, userId, amount, description, start.plusDays(i / 10)));
+        }
+        return new StubTransactionsService(Collections.unmodifiableList(transactions));
+    }
+
+    @Override
+    public List<Transaction> latestTransactionsForUser(Long userId) {
+        return transactions;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.qapital.savings.event;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.qapital.savings.CustomizedJacksonMapper;
+import com.qapital.savings.SavingsJacksonModule;
+import com.qapital.savings.rule.SavingsRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing a response of savings events with the bean serializer, configured like
+ * the application ({@link CustomizedJacksonMapper}), and with {@link SavingsJacksonModule}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SavingsEventSerializationBenchmark {
+
+    @Param({"10", "10000"})
+    private int events;
+
+    private List<SavingsEvent> savingsEvents;
+    private ObjectWriter beanWriter;
+    private ObjectWriter moduleWriter;
+
+    @Setup
+    public void setUp() {
+        SavingsRule savingsRule = SavingsRule.createRoundupRule(11L, 1L, new BigDecimal("2.00"), 1L);
+        Instant created = Instant.now();
+        LocalDate date = LocalDate.of(2017, 10, 30);
+        savingsEvents = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            // A few transactions per day, all events of one execution
+            savingsEvents.add(new SavingsEvent(1L, 1L, savingsRule, SavingsEvent.EventName.rule_application,
+                    date.plusDays(i / 3), BigDecimal.valueOf(i % 200, 2), (long) i, created).withId((long) i));
+        }
+        beanWriter = CustomizedJacksonMapper.getMapper().writerFor(List.class);
+        moduleWriter = CustomizedJacksonMapper.getMapper().copy().registerModule(new SavingsJacksonModule()).writerFor(List.class);
+    }
+
+    @Benchmark
+    public void beanSerializer() throws Exception {
+        beanWriter.writeValue(NullOutputStream.INSTANCE, savingsEvents);
+    }
+
+    @Benchmark
+    public void savingsJacksonModule() throws Exception {
+        moduleWriter.writeValue(NullOutputStream.INSTANCE, savingsEvents);
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
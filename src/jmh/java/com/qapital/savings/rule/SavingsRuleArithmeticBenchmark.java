@@ -0,0 +1,89 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.MinorUnits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the static money helpers of {@link StandardSavingsRulesService} in isolation,
+ * on BigDecimal and on minor units.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SavingsRuleArithmeticBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    @Param({"1", "5", "20"})
+    private int goals;
+
+    private final BigDecimal ruleAmount = new BigDecimal("2.00");
+    private final long ruleMinorUnits = MinorUnits.of(ruleAmount);
+    private BigDecimal[] amounts;
+    private long[] minorUnitAmounts;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        amounts = new BigDecimal[AMOUNTS];
+        minorUnitAmounts = new long[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = BigDecimal.valueOf(-(1 + random.nextInt(10000)), 2);
+            minorUnitAmounts[i] = MinorUnits.of(amounts[i]);
+        }
+    }
+
+    private BigDecimal nextAmount() {
+        return amounts[index++ & (AMOUNTS - 1)];
+    }
+
+    private long nextMinorUnitAmount() {
+        return minorUnitAmounts[index++ & (AMOUNTS - 1)];
+    }
+
+    @Benchmark
+    public BigDecimal roundup() {
+        return StandardSavingsRulesService.roundup(nextAmount(), ruleAmount);
+    }
+
+    @Benchmark
+    public BigDecimal divideToGoalIds() {
+        return StandardSavingsRulesService.divideToGoalIds(nextAmount().negate(), goals);
+    }
+
+    @Benchmark
+    public BigDecimal roundupDividedToGoalIds() {
+        return StandardSavingsRulesService.divideToGoalIds(
+                StandardSavingsRulesService.roundup(nextAmount(), ruleAmount), goals);
+    }
+
+    @Benchmark
+    public long roundupInMinorUnits() {
+        return StandardSavingsRulesService.roundup(nextMinorUnitAmount(), ruleMinorUnits);
+    }
+
+    @Benchmark
+    public BigDecimal roundupInMinorUnitsDividedToGoalIds() {
+        return MinorUnits.toBigDecimal(StandardSavingsRulesService.divideToGoalIds(
+                StandardSavingsRulesService.roundup(nextMinorUnitAmount(), ruleMinorUnits), goals), MinorUnits.SCALE);
+    }
+
+}
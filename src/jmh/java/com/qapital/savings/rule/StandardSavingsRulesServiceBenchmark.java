@@ -0,0 +1,64 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.StubTransactionsService;
+import com.qapital.savings.event.SavingsEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Measures {@link StandardSavingsRulesService#executeRule(SavingsRule)} over histories
+ * of different sizes and rules with different number of goals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StandardSavingsRulesServiceBenchmark {
+
+    private static final Long USER_ID = 1L;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int transactions;
+
+    @Param({"1", "5", "20"})
+    private int goals;
+
+    @Param({"roundup", "guiltypleasure"})
+    private SavingsRule.RuleType ruleType;
+
+    private SavingsRulesService savingsRulesService;
+    private SavingsRule savingsRule;
+
+    @Setup
+    public void setUp() {
+        savingsRulesService = new StandardSavingsRulesService(
+                StubTransactionsService.withHistory(USER_ID, transactions, 42L));
+        Long[] savingsGoalIds = LongStream.rangeClosed(1, goals).boxed().toArray(Long[]::new);
+        // Rules without id have no checkpoint and store nothing, so every invocation evaluates the whole history
+        savingsRule = ruleType == SavingsRule.RuleType.roundup
+                ? SavingsRule.createRoundupRule(null, USER_ID, new BigDecimal("2.00"), savingsGoalIds)
+                : SavingsRule.createGuiltyPleasureRule(null, USER_ID, "Starbucks", new BigDecimal("3.00"), savingsGoalIds);
+    }
+
+    @Benchmark
+    public List<SavingsEvent> executeRule() {
+        return savingsRulesService.executeRule(savingsRule);
+    }
+
+}
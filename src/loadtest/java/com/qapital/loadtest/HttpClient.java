@@ -0,0 +1,70 @@
+package com.qapital.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Blocking JSON client on {@link HttpURLConnection}, which keeps the connections alive per thread
+ * as long as the responses are read to the end
+ */
+class HttpClient {
+
+    private final String baseUrl;
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * Not thread safe, one client per sending thread
+     */
+    HttpClient(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    /**
+     * @return the status code
+     */
+    int get(String path) throws IOException {
+        HttpURLConnection connection = open(path, "GET");
+        return readResponse(connection);
+    }
+
+    /**
+     * @return the status code
+     */
+    int post(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = open(path, "POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return readResponse(connection);
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        // the rule API consumes JSON on all its mappings, GET included
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(60_000);
+        return connection;
+    }
+
+    private int readResponse(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if(in != null) {
+            try (InputStream body = in) {
+                while (body.read(buffer) != -1) {
+                    // the body is part of the latency, its content is not checked
+                }
+            }
+        }
+        return status;
+    }
+
+}
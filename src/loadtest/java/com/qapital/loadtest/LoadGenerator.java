@@ -0,0 +1,138 @@
+package com.qapital.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate, whether or not earlier requests have completed.
+ * Request i is due at start + i / rate, and its latency is measured from when it was due, not from
+ * when a thread got around to send it. A stalled server then shows in the latency of every request
+ * that should have been sent during the stall, instead of in the one request that waited
+ * (coordinated omission). The time from send to response is recorded separately as service time.
+ */
+class LoadGenerator {
+
+    interface Request {
+        /**
+         * @return the status code
+         */
+        int send(HttpClient client, int user) throws IOException;
+    }
+
+    static final class Endpoint {
+
+        final String name;
+        final double share;
+        final Request request;
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+
+        /**
+         * @param share the share of the requests sent to the endpoint
+         */
+        Endpoint(String name, double share, Request request) {
+            this.name = name;
+            this.share = share;
+            this.request = request;
+        }
+
+        void reset() {
+            latency.reset();
+            serviceTime.reset();
+            errors.reset();
+        }
+    }
+
+    private final int port;
+    private final List<Endpoint> endpoints;
+    private final int users;
+    private final int requestsPerSecond;
+    private final int threads;
+
+    /**
+     * @param users requests go to users 1 to users, at random
+     * @param threads the number of requests in flight at most, the rate drops below the target when all are busy
+     */
+    LoadGenerator(int port, List<Endpoint> endpoints, int users, int requestsPerSecond, int threads) {
+        this.port = port;
+        this.endpoints = endpoints;
+        this.users = users;
+        this.requestsPerSecond = requestsPerSecond;
+        this.threads = threads;
+    }
+
+    /**
+     * Sends requests for the duration, recording into freshly reset histograms
+     * @return the time from the first request due to the last response
+     */
+    Duration run(Duration duration) throws InterruptedException {
+        endpoints.forEach(Endpoint::reset);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long requests = duration.toNanos() / intervalNanos;
+        AtomicLong nextRequest = new AtomicLong();
+        long startNanos = System.nanoTime();
+
+        List<Thread> senders = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread sender = new Thread(() -> {
+                HttpClient client = new HttpClient(port);
+                long request;
+                while ((request = nextRequest.getAndIncrement()) < requests) {
+                    long dueNanos = startNanos + request * intervalNanos;
+                    long waitNanos;
+                    while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                    send(client, pickEndpoint(), dueNanos);
+                }
+            }, "loadtest-" + i);
+            sender.setDaemon(true);
+            sender.start();
+            senders.add(sender);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    private void send(HttpClient client, Endpoint endpoint, long dueNanos) {
+        int user = 1 + ThreadLocalRandom.current().nextInt(users);
+        long sentNanos = System.nanoTime();
+        boolean failed;
+        try {
+            failed = endpoint.request.send(client, user) >= 400;
+        } catch (IOException e) {
+            failed = true;
+        }
+        long doneNanos = System.nanoTime();
+        if(failed) {
+            endpoint.errors.increment();
+        }
+        endpoint.latency.recordValue(doneNanos - dueNanos);
+        endpoint.serviceTime.recordValue(doneNanos - sentNanos);
+    }
+
+    private Endpoint pickEndpoint() {
+        double pick = ThreadLocalRandom.current().nextDouble();
+        for (Endpoint endpoint : endpoints) {
+            pick -= endpoint.share;
+            if(pick < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+}
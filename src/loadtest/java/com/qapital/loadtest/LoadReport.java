@@ -0,0 +1,90 @@
+package com.qapital.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the results of a run to its own directory: report.txt with the options and one line per
+ * endpoint in fixed columns, so runs can be diffed, and an .hgrm percentile distribution per
+ * endpoint, which HdrHistogram's plotter overlays to compare runs.
+ */
+class LoadReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String HEADER_FORMAT = "%-10s %10s %8s %12s %9s %9s %9s %9s %9s %11s %11s%n";
+    private static final String LINE_FORMAT = "%-10s %10d %8d %12.1f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f %11.2f%n";
+
+    private final Instant started;
+    private final Map<String, String> options;
+    private final Duration elapsed;
+    private final List<LoadGenerator.Endpoint> endpoints;
+
+    LoadReport(Instant started, Map<String, String> options, Duration elapsed, List<LoadGenerator.Endpoint> endpoints) {
+        this.started = started;
+        this.options = options;
+        this.elapsed = elapsed;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * @return the report file
+     */
+    Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path report = directory.resolve("report.txt");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+            print(out);
+        }
+        for (LoadGenerator.Endpoint endpoint : endpoints) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(endpoint.name + ".hgrm")), false, "UTF-8")) {
+                endpoint.latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+        return report;
+    }
+
+    void print(PrintStream out) {
+        out.printf("# started=%s java.version=%s processors=%d%n", started, System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors());
+        StringBuilder line = new StringBuilder("#");
+        options.forEach((name, value) -> line.append(' ').append(name).append('=').append(value));
+        out.println(line);
+        out.printf(Locale.ROOT, "# measured=%.1fs, latencies in ms from when the request was due, service time from when it was sent%n",
+                elapsed.toNanos() / 1e9);
+        out.printf(Locale.ROOT, HEADER_FORMAT, "endpoint", "requests", "errors", "requests/s",
+                "p50", "p90", "p99", "p99.9", "max", "service-p50", "service-p99");
+        Histogram allLatency = new Histogram(3);
+        Histogram allServiceTime = new Histogram(3);
+        long allErrors = 0;
+        for (LoadGenerator.Endpoint endpoint : endpoints) {
+            print(out, endpoint.name, endpoint.latency, endpoint.serviceTime, endpoint.errors.sum());
+            allLatency.add(endpoint.latency);
+            allServiceTime.add(endpoint.serviceTime);
+            allErrors += endpoint.errors.sum();
+        }
+        print(out, "all", allLatency, allServiceTime, allErrors);
+    }
+
+    private void print(PrintStream out, String name, Histogram latency, Histogram serviceTime, long errors) {
+        out.printf(Locale.ROOT, LINE_FORMAT, name, latency.getTotalCount(), errors,
+                latency.getTotalCount() * 1e9 / elapsed.toNanos(),
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()),
+                millis(serviceTime.getValueAtPercentile(50)), millis(serviceTime.getValueAtPercentile(99)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+}
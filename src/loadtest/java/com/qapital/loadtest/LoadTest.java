@@ -0,0 +1,134 @@
+package com.qapital.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qapital.Application;
+import com.qapital.savings.rule.SavingsRule;
+import com.qapital.savings.rule.SavingsRulesService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Starts the application in-process and drives its HTTP API at a fixed request rate, so the
+ * latencies include Tomcat, Jackson and validation on top of the rule evaluation the JMH
+ * benchmarks measure. Requests are spread over synthetic users with saved rules:
+ * GET /api/savings/rule/active/{userId} and POST /api/savings/rule/execute?replay=true with a saved rule
+ * of the user. Replays evaluate the whole transaction history but store and publish no events, so the
+ * event log does not grow with the run and every execution does the same work.
+ * <p>
+ * Options, as --name=value: users, rules-per-user, goals-per-rule, rate (requests per second),
+ * threads (requests in flight at most), execute-share (0 to 1), warmup-seconds, duration-seconds,
+ * report-dir. Options prefixed app. are passed to the application without the prefix,
+ * e.g. --app.executors.threads=platform.
+ */
+public class LoadTest {
+
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("users", "1000");
+        options.put("rules-per-user", "2");
+        options.put("goals-per-rule", "2");
+        options.put("rate", "500");
+        options.put("threads", "64");
+        options.put("execute-share", "0.2");
+        options.put("warmup-seconds", "10");
+        options.put("duration-seconds", "60");
+        options.put("report-dir", "target/loadtest");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if(!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        int users = Integer.parseInt(options.get("users"));
+        int rulesPerUser = Integer.parseInt(options.get("rules-per-user"));
+        int goalsPerRule = Integer.parseInt(options.get("goals-per-rule"));
+        double executeShare = Double.parseDouble(options.get("execute-share"));
+
+        Path dataDirectory = Files.createTempDirectory("loadtest");
+        List<String> applicationArgs = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--savings.sweep.enabled=false",
+                "--savings.events.log.directory=" + dataDirectory.resolve("events"),
+                "--logging.level.com.qapital=INFO"));
+        options.forEach((name, value) -> {
+            if(name.startsWith("app.")) {
+                applicationArgs.add("--" + name.substring("app.".length()) + "=" + value);
+            }
+        });
+
+        Instant started = Instant.now();
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class, applicationArgs.toArray(new String[0]))) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            SavingsRulesService savingsRulesService = context.getBean(SavingsRulesService.class);
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+            byte[][] executeBodies = new byte[users + 1][];
+            for (int user = 1; user <= users; user++) {
+                SavingsRule executedRule = null;
+                for (int rule = 0; rule < rulesPerUser; rule++) {
+                    SavingsRule savedRule = savingsRulesService.saveRule(rule(user, rule, goalsPerRule));
+                    if(rule == user % rulesPerUser) {
+                        executedRule = savedRule;
+                    }
+                }
+                executeBodies[user] = objectMapper.writeValueAsBytes(
+                        executedRule != null ? executedRule : rule(user, 0, goalsPerRule));
+            }
+
+            List<LoadGenerator.Endpoint> endpoints = Arrays.asList(
+                    new LoadGenerator.Endpoint("active", 1 - executeShare,
+                            (client, user) -> client.get("/api/savings/rule/active/" + user)),
+                    new LoadGenerator.Endpoint("execute", executeShare,
+                            (client, user) -> client.post("/api/savings/rule/execute?replay=true", executeBodies[user])));
+            LoadGenerator loadGenerator = new LoadGenerator(port, endpoints, users,
+                    Integer.parseInt(options.get("rate")), Integer.parseInt(options.get("threads")));
+
+            System.out.println("Warming up for " + options.get("warmup-seconds") + "s");
+            loadGenerator.run(Duration.ofSeconds(Long.parseLong(options.get("warmup-seconds"))));
+            System.out.println("Measuring for " + options.get("duration-seconds") + "s");
+            Duration elapsed = loadGenerator.run(Duration.ofSeconds(Long.parseLong(options.get("duration-seconds"))));
+
+            LoadReport report = new LoadReport(started, options, elapsed, endpoints);
+            report.print(System.out);
+            Path reportFile = report.write(Paths.get(options.get("report-dir"), RUN_NAME.format(started)));
+            System.out.println("Report written to " + reportFile);
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Alternates roundup and guilty pleasure rules, with goal ids unique to the user
+     */
+    private static SavingsRule rule(long user, int rule, int goals) {
+        Long[] savingsGoalIds = new Long[goals];
+        for (int goal = 0; goal < goals; goal++) {
+            savingsGoalIds[goal] = user * 100 + rule * goals + goal;
+        }
+        return rule % 2 == 0
+                ? SavingsRule.createRoundupRule(null, user, new BigDecimal("2.00"), savingsGoalIds)
+                : SavingsRule.createGuiltyPleasureRule(null, user, "Starbucks", new BigDecimal("3.00"), savingsGoalIds);
+    }
+
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qapital.savings.SavingsJacksonModule;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
@@ -18,7 +19,7 @@ public class Application {
             builder.serializationInclusion(JsonInclude.Include.NON_NULL);
             builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
             builder.dateFormat(new ISO8601DateFormat());
-            builder.modulesToInstall(new JavaTimeModule());
+            builder.modulesToInstall(new JavaTimeModule(), new SavingsJacksonModule());
         };
     }
 
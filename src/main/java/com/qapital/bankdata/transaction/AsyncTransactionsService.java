@@ -0,0 +1,26 @@
+package com.qapital.bankdata.transaction;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking variant of {@link TransactionsService}, the caller's thread is not held while the transactions are fetched
+ */
+public interface AsyncTransactionsService {
+
+    /**
+     * @param userId the user id
+     * @return the latest transactions of the user, completed when they are fetched
+     */
+    CompletableFuture<List<Transaction>> latestTransactionsForUserAsync(Long userId);
+
+    /**
+     * Page variant of {@link TransactionsService#transactionsForUser(Long, long, int)},
+     * the default slices the whole history
+     * @return the page, completed when it is fetched
+     */
+    default CompletableFuture<TransactionPage> transactionsForUserAsync(Long userId, long cursor, int pageSize) {
+        return latestTransactionsForUserAsync(userId).thenApply(transactions -> TransactionPage.of(transactions, cursor, pageSize));
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.qapital.bankdata.transaction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the latest transactions of recently requested users, so repeated executions for a user
+ * do not call the bank again. The cache is bounded by the total number of cached transactions,
+ * entries expire after a fixed time and are evicted by frequency and recency (W-TinyLFU).
+ * Entries of a user must be invalidated when new transactions of the user arrive.
+ * Cached histories are indexed by date, so date ranges are served without scanning them.
+ * Pages are sliced from a cached history, otherwise they are fetched page by page. Only a history
+ * within its first page is then cached, so paging a long history never holds it in memory as a whole.
+ * <p>
+ * The cache holds the loads in progress as futures. The first caller of a user loads outside of
+ * the cache's locks and the others wait on its future, so a slow bank or a wait for a fetch permit
+ * never holds a lock of the cache or pins a virtual thread.
+ */
+public class CachingTransactionsService implements TransactionsService {
+
+    private final TransactionsService transactionsService;
+    private final Cache<Long, CompletableFuture<TransactionHistory>> transactionsByUser;
+
+    /**
+     * @param transactionsService the service to load transactions from on cache misses
+     * @param maximumTransactions the maximum number of transactions held, over all users
+     * @param expireAfterWrite how long transactions are served from the cache
+     */
+    public CachingTransactionsService(TransactionsService transactionsService, long maximumTransactions, Duration expireAfterWrite) {
+        this.transactionsService = transactionsService;
+        this.transactionsByUser = Caffeine.newBuilder()
+                .maximumWeight(maximumTransactions)
+                .weigher((Long userId, CompletableFuture<TransactionHistory> history) -> weight(history))
+                .expireAfterWrite(expireAfterWrite.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public List<Transaction> latestTransactionsForUser(Long userId) {
+        TransactionHistory history = history(userId);
+        return history == null ? null : history.transactions();
+    }
+
+    @Override
+    public List<Transaction> transactionsForUserBetween(Long userId, LocalDate from, LocalDate to) {
+        TransactionHistory history = history(userId);
+        return history == null ? null : history.between(from, to);
+    }
+
+    @Override
+    public TransactionPage transactionsForUser(Long userId, long cursor, int pageSize) {
+        if(cursor != TransactionPage.FIRST) {
+            CompletableFuture<TransactionHistory> cached = transactionsByUser.getIfPresent(userId);
+            TransactionHistory history = cached == null ? null : join(cached);
+            return history == null ? transactionsService.transactionsForUser(userId, cursor, pageSize)
+                    : TransactionPage.of(history.transactions(), cursor, pageSize);
+        }
+        TransactionPage[] firstPage = new TransactionPage[1];
+        TransactionHistory history = load(userId, () -> {
+            firstPage[0] = transactionsService.transactionsForUser(userId, cursor, pageSize);
+            // a history in a single page is cached, a longer one is not held in memory as a whole
+            return firstPage[0].isLast() && !firstPage[0].getTransactions().isEmpty() ? TransactionHistory.of(firstPage[0].getTransactions()) : null;
+        });
+        if(history != null) {
+            return TransactionPage.of(history.transactions(), cursor, pageSize);
+        }
+        // another caller's load of a long history was not cached, this caller fetches the page itself
+        return firstPage[0] != null ? firstPage[0] : transactionsService.transactionsForUser(userId, cursor, pageSize);
+    }
+
+    private TransactionHistory history(Long userId) {
+        return load(userId, () -> {
+            List<Transaction> transactions = transactionsService.latestTransactionsForUser(userId);
+            return transactions == null ? null : TransactionHistory.of(transactions);
+        });
+    }
+
+    /**
+     * Returns the cached history of the user, or loads it on the calling thread while concurrent
+     * callers wait for it. A load returning null is not cached.
+     */
+    private TransactionHistory load(Long userId, Supplier<TransactionHistory> loader) {
+        CompletableFuture<TransactionHistory> loading = new CompletableFuture<>();
+        CompletableFuture<TransactionHistory> cached = transactionsByUser.get(userId, key -> loading);
+        if(cached != loading) {
+            return join(cached);
+        }
+        TransactionHistory history;
+        try {
+            history = loader.get();
+        } catch (RuntimeException | Error e) {
+            transactionsByUser.asMap().remove(userId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(history);
+        if(history == null) {
+            transactionsByUser.asMap().remove(userId, loading);
+        } else {
+            // weighs the loaded history, unless the user was invalidated during the load
+            transactionsByUser.asMap().replace(userId, loading, loading);
+        }
+        return history;
+    }
+
+    private static TransactionHistory join(CompletableFuture<TransactionHistory> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if(e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads in progress weigh one, until they are weighed again when done
+     */
+    private static int weight(CompletableFuture<TransactionHistory> loading) {
+        TransactionHistory history = loading.isDone() && !loading.isCompletedExceptionally() ? loading.join() : null;
+        return history == null ? 1 : history.size();
+    }
+
+    /**
+     * Drops the cached transactions of the user, the next request loads them again
+     * @param userId the user id
+     */
+    @Override
+    public void invalidate(Long userId) {
+        transactionsByUser.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        transactionsByUser.invalidateAll();
+    }
+
+    /**
+     * @return hit, miss, load and eviction statistics of the cache
+     */
+    public CacheStats stats() {
+        return transactionsByUser.stats();
+    }
+
+}
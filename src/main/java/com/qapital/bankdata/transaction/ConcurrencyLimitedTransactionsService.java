@@ -0,0 +1,68 @@
+package com.qapital.bankdata.transaction;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent fetches from a {@link TransactionsService}, callers beyond
+ * the limit wait for a fetch to finish. Protects the bank from sweeps and load peaks.
+ */
+public class ConcurrencyLimitedTransactionsService implements TransactionsService {
+
+    private final TransactionsService transactionsService;
+    private final Semaphore permits;
+
+    /**
+     * @param transactionsService the service to limit
+     * @param maxConcurrentFetches the maximum number of fetches in progress at the same time
+     */
+    public ConcurrencyLimitedTransactionsService(TransactionsService transactionsService, int maxConcurrentFetches) {
+        this.transactionsService = transactionsService;
+        this.permits = new Semaphore(maxConcurrentFetches, true);
+    }
+
+    @Override
+    public List<Transaction> latestTransactionsForUser(Long userId) {
+        acquire(userId);
+        try {
+            return transactionsService.latestTransactionsForUser(userId);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Limits each page on its own, the permit is not held between pages
+     */
+    @Override
+    public TransactionPage transactionsForUser(Long userId, long cursor, int pageSize) {
+        acquire(userId);
+        try {
+            return transactionsService.transactionsForUser(userId, cursor, pageSize);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire(Long userId) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to fetch transactions of userId=" + userId, e);
+        }
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        transactionsService.invalidate(userId);
+    }
+
+    /**
+     * @return the number of callers waiting to fetch
+     */
+    public int waitingFetches() {
+        return permits.getQueueLength();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.qapital.bankdata.transaction;
+
+import com.qapital.concurrent.PlatformTaskExecutors;
+import com.qapital.concurrent.TaskExecutors;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Adapts a blocking {@link TransactionsService} to {@link AsyncTransactionsService} by fetching
+ * on a separate executor, so request threads do not wait on the bank.
+ * The bank data client is blocking, so the waiting moves to a pool sized for I/O instead of disappearing.
+ */
+public class ExecutorAsyncTransactionsService implements AsyncTransactionsService {
+
+    private final TransactionsService transactionsService;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * @param transactionsService the blocking service
+     * @param executor the executor the fetches run on, owned by the caller
+     */
+    public ExecutorAsyncTransactionsService(TransactionsService transactionsService, Executor executor) {
+        this.transactionsService = transactionsService;
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    /**
+     * @param transactionsService the blocking service
+     * @param threads the number of fetches in flight at most, further fetches are queued
+     */
+    public ExecutorAsyncTransactionsService(TransactionsService transactionsService, int threads) {
+        this(transactionsService, new PlatformTaskExecutors(), threads);
+    }
+
+    /**
+     * @param transactionsService the blocking service
+     * @param taskExecutors creates the executor the fetches run on
+     * @param threads the number of fetches in flight at most on platform threads, further fetches are queued
+     */
+    public ExecutorAsyncTransactionsService(TransactionsService transactionsService, TaskExecutors taskExecutors, int threads) {
+        this.transactionsService = transactionsService;
+        this.ownedExecutor = taskExecutors.newExecutor("bankdata", threads);
+        this.executor = ownedExecutor;
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> latestTransactionsForUserAsync(Long userId) {
+        return CompletableFuture.supplyAsync(() -> transactionsService.latestTransactionsForUser(userId), executor);
+    }
+
+    @Override
+    public CompletableFuture<TransactionPage> transactionsForUserAsync(Long userId, long cursor, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> transactionsService.transactionsForUser(userId, cursor, pageSize), executor);
+    }
+
+    /**
+     * Stops the executor if it was created by this service
+     */
+    public void shutdown() {
+        if(ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+}
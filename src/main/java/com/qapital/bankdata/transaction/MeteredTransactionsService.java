@@ -0,0 +1,51 @@
+package com.qapital.bankdata.transaction;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.List;
+
+/**
+ * Times the fetches of a {@link TransactionsService} as bankdata.transactions.fetch
+ * and records the number of fetched transactions as bankdata.transactions.fetched,
+ * a page counting as a fetch
+ */
+public class MeteredTransactionsService implements TransactionsService {
+
+    private final TransactionsService transactionsService;
+    private final Timer fetchTimer;
+    private final Histogram fetchedTransactions;
+
+    public MeteredTransactionsService(TransactionsService transactionsService, MetricRegistry metricRegistry) {
+        this.transactionsService = transactionsService;
+        this.fetchTimer = metricRegistry.timer("bankdata.transactions.fetch");
+        this.fetchedTransactions = metricRegistry.histogram("bankdata.transactions.fetched");
+    }
+
+    @Override
+    public List<Transaction> latestTransactionsForUser(Long userId) {
+        List<Transaction> transactions;
+        try (Timer.Context ignored = fetchTimer.time()) {
+            transactions = transactionsService.latestTransactionsForUser(userId);
+        }
+        fetchedTransactions.update(transactions == null ? 0 : transactions.size());
+        return transactions;
+    }
+
+    @Override
+    public TransactionPage transactionsForUser(Long userId, long cursor, int pageSize) {
+        TransactionPage page;
+        try (Timer.Context ignored = fetchTimer.time()) {
+            page = transactionsService.transactionsForUser(userId, cursor, pageSize);
+        }
+        fetchedTransactions.update(page.getTransactions().size());
+        return page;
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        transactionsService.invalidate(userId);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.qapital.bankdata.transaction;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between {@link BigDecimal} amounts and amounts scaled to minor units (cents) held in a long.
+ * Arithmetic on minor units does not allocate, so it is used on the hot paths of rule evaluation.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    /**
+     * Returned for amounts that would lose precision or could overflow as minor units
+     */
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    // Keeps sums and products of two amounts far from overflowing a long
+    private static final long MAX_ABSOLUTE_VALUE = 1_000_000_000_000_000L;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @param amount amount to convert, can be null
+     * @return the amount in minor units, or {@link #NOT_REPRESENTABLE} if it has more than {@link #SCALE} decimals,
+     * is too large or is null
+     */
+    public static long of(BigDecimal amount) {
+        if(amount == null || amount.scale() > SCALE) {
+            return NOT_REPRESENTABLE;
+        }
+        try {
+            long minorUnits = amount.movePointRight(SCALE).longValueExact();
+            return Math.abs(minorUnits) < MAX_ABSOLUTE_VALUE ? minorUnits : NOT_REPRESENTABLE;
+        } catch (ArithmeticException e) {
+            return NOT_REPRESENTABLE;
+        }
+    }
+
+    /**
+     * @param minorUnits amount in minor units
+     * @param scale scale of the result. Must not drop non-zero decimals of the amount
+     * @return the amount as BigDecimal with given scale
+     */
+    public static BigDecimal toBigDecimal(long minorUnits, int scale) {
+        return BigDecimal.valueOf(minorUnits, SCALE).setScale(scale);
+    }
+
+}
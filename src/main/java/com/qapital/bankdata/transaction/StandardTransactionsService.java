@@ -1,5 +1,7 @@
 package com.qapital.bankdata.transaction;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -9,6 +11,8 @@ import java.util.Collections;
 import java.util.List;
 
 @Service
+@Qualifier("bankdata")
+@Profile("!synthetic")
 public class StandardTransactionsService implements TransactionsService {
 
     @Override
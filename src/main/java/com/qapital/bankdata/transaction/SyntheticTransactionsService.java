@@ -0,0 +1,186 @@
+package com.qapital.bankdata.transaction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Generates the transaction histories of any number of users, for benchmarks and load tests at
+ * production scale without bank data. Active with the "synthetic" profile instead of the bank.
+ * <p>
+ * Each transaction is derived from the seed, the user id and its position, so the same settings
+ * always give the same histories, and a history is computed as it is read instead of held in memory.
+ * A page is generated alone, so paging a history of millions of transactions holds one page at a time.
+ * Ids are ascending and dates spread evenly over the days before the end date, in the order of the ids.
+ */
+@Service
+@Qualifier("bankdata")
+@Profile("synthetic")
+public class SyntheticTransactionsService implements TransactionsService {
+
+    private final long seed;
+    private final int minTransactions;
+    private final int maxTransactions;
+    private final String[] merchants;
+    private final long[] cumulativeMerchantWeights;
+    private final double incomeShare;
+    private final String incomeDescription;
+    private final long incomeCents;
+    private final double logMaxExpenseCents;
+    private final int days;
+    private final long endEpochDay;
+
+    /**
+     * @param minTransactions the size of the shortest history
+     * @param maxTransactions the size of the longest history, each user gets a size in between
+     * @param merchants the merchants of expenses with their weights, e.g. "Starbucks:30,Amazon:10"
+     * @param incomeShare the share of the transactions that are income, between 0 and 1
+     * @param incomeAmount the amount of each income
+     * @param maxExpenseAmount the largest expense, smaller expenses are more common
+     * @param days the number of days the history is spread over
+     * @param endDate the date of the last transaction
+     */
+    @Autowired
+    public SyntheticTransactionsService(@Value("${bankdata.synthetic.seed:42}") long seed,
+                                        @Value("${bankdata.synthetic.min-transactions:100}") int minTransactions,
+                                        @Value("${bankdata.synthetic.max-transactions:1000}") int maxTransactions,
+                                        @Value("${bankdata.synthetic.merchants:Starbucks:30,McDonald's:15,Amazon:15,Walmart:15,Apple Itunes:10,Papa Joe's:10,Espresso House:5}") String merchants,
+                                        @Value("${bankdata.synthetic.income-share:0.03}") double incomeShare,
+                                        @Value("${bankdata.synthetic.income-description:Salary}") String incomeDescription,
+                                        @Value("${bankdata.synthetic.income-amount:1945.00}") BigDecimal incomeAmount,
+                                        @Value("${bankdata.synthetic.max-expense-amount:150.00}") BigDecimal maxExpenseAmount,
+                                        @Value("${bankdata.synthetic.days:365}") int days,
+                                        @Value("${bankdata.synthetic.end-date:2017-10-31}") String endDate) {
+        if(minTransactions < 0 || maxTransactions < minTransactions) {
+            throw new IllegalArgumentException("Invalid history sizes min=" + minTransactions + " max=" + maxTransactions);
+        }
+        if(incomeShare < 0 || incomeShare > 1 || days < 1) {
+            throw new IllegalArgumentException("Invalid incomeShare=" + incomeShare + " or days=" + days);
+        }
+        this.seed = seed;
+        this.minTransactions = minTransactions;
+        this.maxTransactions = maxTransactions;
+        String[] weightedMerchants = merchants.split(",");
+        this.merchants = new String[weightedMerchants.length];
+        this.cumulativeMerchantWeights = new long[weightedMerchants.length];
+        long totalWeight = 0;
+        for (int i = 0; i < weightedMerchants.length; i++) {
+            int separator = weightedMerchants[i].lastIndexOf(':');
+            if(separator < 1) {
+                throw new IllegalArgumentException("Expected merchant:weight, got " + weightedMerchants[i]);
+            }
+            this.merchants[i] = weightedMerchants[i].substring(0, separator).trim();
+            long weight = Long.parseLong(weightedMerchants[i].substring(separator + 1).trim());
+            if(weight < 1) {
+                throw new IllegalArgumentException("Merchant weights must be positive, got " + weightedMerchants[i]);
+            }
+            totalWeight += weight;
+            this.cumulativeMerchantWeights[i] = totalWeight;
+        }
+        this.incomeShare = incomeShare;
+        this.incomeDescription = incomeDescription;
+        this.incomeCents = incomeAmount.movePointRight(2).longValueExact();
+        this.logMaxExpenseCents = Math.log(maxExpenseAmount.movePointRight(2).doubleValue());
+        this.days = days;
+        this.endEpochDay = LocalDate.parse(endDate).toEpochDay();
+    }
+
+    @Override
+    public List<Transaction> latestTransactionsForUser(Long userId) {
+        return new History(userId, historySize(userId));
+    }
+
+    @Override
+    public TransactionPage transactionsForUser(Long userId, long cursor, int pageSize) {
+        if(cursor < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("Invalid cursor=" + cursor + " or pageSize=" + pageSize);
+        }
+        int size = historySize(userId);
+        if(cursor >= size) {
+            return TransactionPage.of(null);
+        }
+        int to = (int) Math.min(size, cursor + pageSize);
+        List<Transaction> transactions = new ArrayList<>(to - (int) cursor);
+        for (int index = (int) cursor; index < to; index++) {
+            transactions.add(transaction(userId, index, size));
+        }
+        return new TransactionPage(transactions, to == size ? TransactionPage.END : to);
+    }
+
+    private int historySize(long userId) {
+        long sizes = (long) maxTransactions - minTransactions + 1;
+        return (int) (minTransactions + Long.remainderUnsigned(mix(seed ^ mix(userId)), sizes));
+    }
+
+    private Transaction transaction(long userId, int index, int size) {
+        long random = mix(seed ^ mix(userId) ^ mix(index + 0x632BE59BD9B4E019L));
+        long id = index + 1L;
+        // evenly spread, the last transaction on the end date
+        LocalDate date = LocalDate.ofEpochDay(endEpochDay - (long) (size - 1 - index) * days / size);
+        if(uniform(random) < incomeShare) {
+            return new Transaction(id, userId, BigDecimal.valueOf(incomeCents, 2), incomeDescription, date);
+        }
+        random = mix(random);
+        // log-uniform between one cent and the largest expense
+        long expenseCents = Math.max(1, (long) Math.exp(uniform(random) * logMaxExpenseCents));
+        random = mix(random);
+        String merchant = merchants[merchantIndex(Long.remainderUnsigned(random, cumulativeMerchantWeights[cumulativeMerchantWeights.length - 1]))];
+        return new Transaction(id, userId, BigDecimal.valueOf(-expenseCents, 2), merchant, date);
+    }
+
+    private int merchantIndex(long weight) {
+        int index = Arrays.binarySearch(cumulativeMerchantWeights, weight + 1);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return a double in [0, 1) from the high bits
+     */
+    private static double uniform(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * SplitMix64 finalizer, neighbouring inputs give unrelated outputs
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private final class History extends AbstractList<Transaction> implements RandomAccess {
+
+        private final long userId;
+        private final int size;
+
+        History(long userId, int size) {
+            this.userId = userId;
+            this.size = size;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if(index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return transaction(userId, index, size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -1,5 +1,8 @@
 package com.qapital.bankdata.transaction;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Objects;
@@ -12,7 +15,12 @@ public class Transaction {
     private final String description;
     private final LocalDate date;
 
-    public Transaction(Long id, Long userId, BigDecimal amount, String description, LocalDate date) {
+    @JsonCreator
+    public Transaction(@JsonProperty("id") Long id,
+                       @JsonProperty("userId") Long userId,
+                       @JsonProperty("amount") BigDecimal amount,
+                       @JsonProperty("description") String description,
+                       @JsonProperty("date") LocalDate date) {
         this.id = id;
         this.userId = userId;
         this.amount = amount;
@@ -0,0 +1,172 @@
+package com.qapital.bankdata.transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented, immutable snapshot of the transactions of a user, backed by primitive arrays:
+ * ids, amounts in minor units, epoch days and dictionary encoded descriptions.
+ * Far more compact than a list of {@link Transaction}s and meant for tight evaluation loops.
+ * Nullable fields of a transaction are held as {@link #NO_ID}, {@link #NO_DATE} and {@link #NO_DESCRIPTION}.
+ */
+public final class TransactionBatch {
+
+    public static final long NO_ID = Long.MIN_VALUE;
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    public static final int NO_DESCRIPTION = -1;
+
+    private final Long userId;
+    private final int size;
+    private final long[] ids;
+    private final long[] amounts;
+    private final byte[] amountScales;
+    // Amounts not representable in minor units, by index. Null when all amounts are representable.
+    private final BigDecimal[] exactAmounts;
+    private final int[] epochDays;
+    private final int[] descriptionIds;
+    private final String[] descriptions;
+
+    private TransactionBatch(Long userId, int size, long[] ids, long[] amounts, byte[] amountScales, BigDecimal[] exactAmounts,
+                             int[] epochDays, int[] descriptionIds, String[] descriptions) {
+        this.userId = userId;
+        this.size = size;
+        this.ids = ids;
+        this.amounts = amounts;
+        this.amountScales = amountScales;
+        this.exactAmounts = exactAmounts;
+        this.epochDays = epochDays;
+        this.descriptionIds = descriptionIds;
+        this.descriptions = descriptions;
+    }
+
+    /**
+     * @param userId the user the transactions belong to
+     * @param transactions the transactions, in the order they should be evaluated. Amounts must not be null.
+     * @return batch of given transactions
+     */
+    public static TransactionBatch of(Long userId, List<Transaction> transactions) {
+        int size = transactions.size();
+        long[] ids = new long[size];
+        long[] amounts = new long[size];
+        byte[] amountScales = new byte[size];
+        BigDecimal[] exactAmounts = null;
+        int[] epochDays = new int[size];
+        int[] descriptionIds = new int[size];
+        Map<String, Integer> dictionary = new HashMap<>();
+        int index = 0;
+        for (Transaction transaction : transactions) {
+            ids[index] = transaction.getId() == null ? NO_ID : transaction.getId();
+            BigDecimal amount = transaction.getAmount();
+            long minorUnits = MinorUnits.of(amount);
+            if(minorUnits == MinorUnits.NOT_REPRESENTABLE || amount.scale() < Byte.MIN_VALUE) {
+                if(exactAmounts == null) {
+                    exactAmounts = new BigDecimal[size];
+                }
+                exactAmounts[index] = amount;
+                amounts[index] = MinorUnits.NOT_REPRESENTABLE;
+            } else {
+                amounts[index] = minorUnits;
+                amountScales[index] = (byte) amount.scale();
+            }
+            epochDays[index] = transaction.getDate() == null ? NO_DATE : Math.toIntExact(transaction.getDate().toEpochDay());
+            descriptionIds[index] = transaction.getDescription() == null
+                    ? NO_DESCRIPTION : dictionary.computeIfAbsent(transaction.getDescription(), description -> dictionary.size());
+            index++;
+        }
+        String[] descriptions = new String[dictionary.size()];
+        dictionary.forEach((description, descriptionId) -> descriptions[descriptionId] = description);
+        return new TransactionBatch(userId, size, ids, amounts, amountScales, exactAmounts, epochDays, descriptionIds, descriptions);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the id of the transaction at index, or {@link #NO_ID}
+     */
+    public long id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the amount of the transaction at index in minor units, or {@link MinorUnits#NOT_REPRESENTABLE}
+     * in which case {@link #exactAmount(int)} has the amount
+     */
+    public long amount(int index) {
+        return amounts[index];
+    }
+
+    /**
+     * @return the scale of the original BigDecimal amount of the transaction at index
+     */
+    public int amountScale(int index) {
+        return exactAmounts != null && exactAmounts[index] != null ? exactAmounts[index].scale() : amountScales[index];
+    }
+
+    /**
+     * @return the amount of the transaction at index, equal to the original BigDecimal amount
+     */
+    public BigDecimal exactAmount(int index) {
+        if(exactAmounts != null && exactAmounts[index] != null) {
+            return exactAmounts[index];
+        }
+        return MinorUnits.toBigDecimal(amounts[index], amountScales[index]);
+    }
+
+    /**
+     * @return whether the transaction at index has a negative amount
+     */
+    public boolean isExpense(int index) {
+        long amount = amounts[index];
+        return amount == MinorUnits.NOT_REPRESENTABLE ? exactAmounts[index].signum() == -1 : amount < 0;
+    }
+
+    /**
+     * @return the date of the transaction at index as epoch day, or {@link #NO_DATE}
+     */
+    public int epochDay(int index) {
+        return epochDays[index];
+    }
+
+    /**
+     * @return the dictionary id of the description of the transaction at index, or {@link #NO_DESCRIPTION}
+     */
+    public int descriptionId(int index) {
+        return descriptionIds[index];
+    }
+
+    /**
+     * @return the number of distinct descriptions, dictionary ids are 0 to dictionarySize() - 1
+     */
+    public int dictionarySize() {
+        return descriptions.length;
+    }
+
+    /**
+     * @param descriptionId dictionary id of a description
+     * @return the description
+     */
+    public String dictionaryDescription(int descriptionId) {
+        return descriptions[descriptionId];
+    }
+
+    /**
+     * @return the transaction at index, as an object
+     */
+    public Transaction transaction(int index) {
+        return new Transaction(ids[index] == NO_ID ? null : ids[index],
+                userId,
+                exactAmount(index),
+                descriptionIds[index] == NO_DESCRIPTION ? null : descriptions[descriptionIds[index]],
+                epochDays[index] == NO_DATE ? null : LocalDate.ofEpochDay(epochDays[index]));
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.qapital.bankdata.transaction;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable history of the transactions of a user with an index by date, so the transactions
+ * of a date range are found with a binary search instead of a scan of the whole history.
+ * The transactions keep the order they were given in, e.g. id order from the bank.
+ */
+public final class TransactionHistory {
+
+    private final List<Transaction> transactions;
+    // Indexes of the transactions with a date, ordered by date and then by position in the history
+    private final int[] byDate;
+    private final int[] sortedEpochDays;
+
+    private TransactionHistory(List<Transaction> transactions, int[] byDate, int[] sortedEpochDays) {
+        this.transactions = transactions;
+        this.byDate = byDate;
+        this.sortedEpochDays = sortedEpochDays;
+    }
+
+    /**
+     * @param transactions the transactions of one user, in any order
+     */
+    public static TransactionHistory of(List<Transaction> transactions) {
+        List<Transaction> history = Collections.unmodifiableList(Arrays.asList(transactions.toArray(new Transaction[0])));
+        long[] dateAndIndex = new long[history.size()];
+        int dated = 0;
+        for (int index = 0; index < history.size(); index++) {
+            LocalDate date = history.get(index).getDate();
+            if(date != null) {
+                // epoch day in the high bits, so sorting orders by date and keeps the order within a day
+                dateAndIndex[dated++] = date.toEpochDay() << 32 | index;
+            }
+        }
+        Arrays.sort(dateAndIndex, 0, dated);
+        int[] byDate = new int[dated];
+        int[] sortedEpochDays = new int[dated];
+        for (int i = 0; i < dated; i++) {
+            byDate[i] = (int) dateAndIndex[i];
+            sortedEpochDays[i] = (int) (dateAndIndex[i] >> 32);
+        }
+        return new TransactionHistory(history, byDate, sortedEpochDays);
+    }
+
+    /**
+     * @return all transactions, in the order given
+     */
+    public List<Transaction> transactions() {
+        return transactions;
+    }
+
+    public int size() {
+        return transactions.size();
+    }
+
+    /**
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return the transactions dated in the range, by date. Transactions without date are in no range.
+     */
+    public List<Transaction> between(LocalDate from, LocalDate to) {
+        int start = firstIndexOnOrAfter(from.toEpochDay());
+        int end = firstIndexOnOrAfter(to.toEpochDay() + 1);
+        if(start >= end) {
+            return Collections.emptyList();
+        }
+        return new AbstractList<Transaction>() {
+            @Override
+            public Transaction get(int index) {
+                if(index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                }
+                return transactions.get(byDate[start + index]);
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    /**
+     * @return the position of the first transaction dated on or after the epoch day in date order
+     */
+    private int firstIndexOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = sortedEpochDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if(sortedEpochDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
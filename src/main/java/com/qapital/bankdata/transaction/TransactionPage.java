@@ -0,0 +1,71 @@
+package com.qapital.bankdata.transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the history of a user, with the cursor of the next page. A cursor is the position in
+ * the history, in the order of {@link TransactionsService#latestTransactionsForUser(Long)},
+ * of the first transaction of a page.
+ */
+public final class TransactionPage {
+
+    /**
+     * Cursor of the first page
+     */
+    public static final long FIRST = 0L;
+
+    /**
+     * Next cursor of the last page
+     */
+    public static final long END = -1L;
+
+    private static final TransactionPage EMPTY = new TransactionPage(Collections.emptyList(), END);
+
+    private final List<Transaction> transactions;
+    private final long nextCursor;
+
+    public TransactionPage(List<Transaction> transactions, long nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the whole history as a single page, an empty page if the history is null
+     */
+    public static TransactionPage of(List<Transaction> transactions) {
+        return transactions == null ? EMPTY : new TransactionPage(transactions, END);
+    }
+
+    /**
+     * @param transactions the whole history, null if the user has none
+     * @return a view of the page of the history starting at the cursor
+     */
+    public static TransactionPage of(List<Transaction> transactions, long cursor, int pageSize) {
+        if(cursor < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("Invalid cursor=" + cursor + " or pageSize=" + pageSize);
+        }
+        if(transactions == null || cursor >= transactions.size()) {
+            return EMPTY;
+        }
+        int from = (int) cursor;
+        int to = (int) Math.min(transactions.size(), cursor + pageSize);
+        return new TransactionPage(transactions.subList(from, to), to == transactions.size() ? END : to);
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return the cursor of the next page, {@link #END} if this is the last page
+     */
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isLast() {
+        return nextCursor == END;
+    }
+
+}
@@ -1,10 +1,40 @@
 package com.qapital.bankdata.transaction;
 
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface TransactionsService {
 
     List<Transaction> latestTransactionsForUser(Long userId);
 
+    /**
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return the latest transactions of the user dated in the range, by date, null if the user has none
+     */
+    default List<Transaction> transactionsForUserBetween(Long userId, LocalDate from, LocalDate to) {
+        List<Transaction> transactions = latestTransactionsForUser(userId);
+        return transactions == null ? null : TransactionHistory.of(transactions).between(from, to);
+    }
+
+    /**
+     * Reads the history of the user a page at a time, so a long history need not be held in memory at once.
+     * Services that can fetch a page alone should override this, the default slices the whole history.
+     * @param cursor {@link TransactionPage#FIRST}, or the next cursor of the previous page
+     * @param pageSize the number of transactions of a page at most
+     * @return the page, empty and last if the user has no transactions
+     */
+    default TransactionPage transactionsForUser(Long userId, long cursor, int pageSize) {
+        return TransactionPage.of(latestTransactionsForUser(userId), cursor, pageSize);
+    }
+
+    /**
+     * Drops what the service keeps of the transactions of the user, called when new transactions
+     * of the user arrive so the next fetch includes them
+     * @param userId the user id
+     */
+    default void invalidate(Long userId) {
+    }
+
 }
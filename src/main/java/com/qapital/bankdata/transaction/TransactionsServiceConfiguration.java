@@ -0,0 +1,48 @@
+package com.qapital.bankdata.transaction;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.qapital.concurrent.TaskExecutors;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Decorates the bank data {@link TransactionsService}, qualified as "bankdata",
+ * with the services the rest of the application uses
+ */
+@Configuration
+public class TransactionsServiceConfiguration {
+
+    @Bean
+    @Primary
+    public CachingTransactionsService cachingTransactionsService(
+            @Qualifier("bankdata") TransactionsService transactionsService,
+            MetricRegistry metricRegistry,
+            @Value("${bankdata.transactions.cache.maximum-transactions:10000000}") long maximumTransactions,
+            @Value("${bankdata.transactions.cache.expire-after-write-seconds:300}") long expireAfterWriteSeconds,
+            @Value("${bankdata.transactions.max-concurrent-fetches:32}") int maxConcurrentFetches) {
+        // Metered below the cache and the limit, so the fetch timer shows the latency of the bank
+        ConcurrencyLimitedTransactionsService limitedTransactionsService = new ConcurrencyLimitedTransactionsService(
+                new MeteredTransactionsService(transactionsService, metricRegistry), maxConcurrentFetches);
+        metricRegistry.register("bankdata.transactions.fetch.waiting", (Gauge<Integer>) limitedTransactionsService::waitingFetches);
+        CachingTransactionsService cachingTransactionsService = new CachingTransactionsService(
+                limitedTransactionsService, maximumTransactions, Duration.ofSeconds(expireAfterWriteSeconds));
+        metricRegistry.register("bankdata.transactions.cache.hit-rate",
+                (Gauge<Double>) () -> cachingTransactionsService.stats().hitRate());
+        return cachingTransactionsService;
+    }
+
+    @Bean
+    public ExecutorAsyncTransactionsService asyncTransactionsService(
+            TransactionsService transactionsService,
+            TaskExecutors taskExecutors,
+            @Value("${bankdata.transactions.async.threads:64}") int threads) {
+        return new ExecutorAsyncTransactionsService(transactionsService, taskExecutors, threads);
+    }
+
+}
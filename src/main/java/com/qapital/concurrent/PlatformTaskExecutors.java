@@ -0,0 +1,40 @@
+package com.qapital.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed pools of daemon platform threads, named after the executor
+ */
+public class PlatformTaskExecutors implements TaskExecutors {
+
+    @Override
+    public ExecutorService newExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, new NamedThreadFactory(name));
+    }
+
+    @Override
+    public String toString() {
+        return "platform";
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.qapital.concurrent;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the executors of work fanned out per user: bulk rule executions, sweeps and
+ * transaction fetches. Each is mostly waiting on the bank, so the kind of threads is chosen
+ * once for the application instead of tuning each pool.
+ */
+public interface TaskExecutors {
+
+    /**
+     * @param name the prefix of the thread names
+     * @param threads the number of threads of a platform pool, further tasks are queued.
+     *                Executors of virtual threads start a thread per task and ignore it.
+     * @return an executor owned by the caller, to be shut down by it
+     */
+    ExecutorService newExecutor(String name, int threads);
+
+}
@@ -0,0 +1,40 @@
+package com.qapital.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TaskExecutorsConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    public enum Threads {
+        /**
+         * Virtual threads when the JVM has them, platform threads otherwise
+         */
+        auto,
+        platform,
+        virtual
+    }
+
+    @Bean
+    public TaskExecutors taskExecutors(@Value("${executors.threads:auto}") Threads threads) {
+        TaskExecutors taskExecutors;
+        if(threads == Threads.platform) {
+            taskExecutors = new PlatformTaskExecutors();
+        } else if(VirtualTaskExecutors.isSupported()) {
+            taskExecutors = new VirtualTaskExecutors();
+        } else {
+            if(threads == Threads.virtual) {
+                log.warn("Virtual threads unavailable on java.version={}, falling back to platform threads", System.getProperty("java.version"));
+            }
+            taskExecutors = new PlatformTaskExecutors();
+        }
+        log.info("Per-user work runs on {} threads", taskExecutors);
+        return taskExecutors;
+    }
+
+}
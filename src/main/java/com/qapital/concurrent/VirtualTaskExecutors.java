@@ -0,0 +1,77 @@
+package com.qapital.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors starting a virtual thread per task, available from JDK 21. A blocked fetch then
+ * parks its virtual thread instead of holding a platform thread, so thousands of users can
+ * wait on the bank at once. The bank still sees at most the concurrent fetches allowed in
+ * front of it. Looked up reflectively, since the application is built for Java 8.
+ */
+public class VirtualTaskExecutors implements TaskExecutors {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // JDK 19 and 20 have the methods as preview API, failing unless started with --enable-preview
+            factory.invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * @return whether the running JVM creates virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    public VirtualTaskExecutors() {
+        if(!isSupported()) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later, running java.version=" + System.getProperty("java.version"));
+        }
+    }
+
+    @Override
+    public ExecutorService newExecutor(String name, int threads) {
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 1L);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, FACTORY.invoke(builder));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Virtual threads not accessible", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Virtual thread executor not created", e.getCause());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "virtual";
+    }
+
+}
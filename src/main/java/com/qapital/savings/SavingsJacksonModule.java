@@ -0,0 +1,21 @@
+package com.qapital.savings;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.qapital.savings.event.SavingsEvent;
+import com.qapital.savings.event.SavingsEventSerializer;
+import com.qapital.savings.rule.SavingsRule;
+import com.qapital.savings.rule.SavingsRuleSerializer;
+
+/**
+ * Serializers of the savings types returned in large numbers, writing fields without
+ * reflection. Reading still uses the annotated creators.
+ */
+public class SavingsJacksonModule extends SimpleModule {
+
+    public SavingsJacksonModule() {
+        super(SavingsJacksonModule.class.getSimpleName());
+        addSerializer(SavingsEvent.class, new SavingsEventSerializer());
+        addSerializer(SavingsRule.class, new SavingsRuleSerializer());
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.qapital.savings.event;
+
+/**
+ * Bloom filter of keys of three longs, in a bit array sized for an expected number of keys
+ * and false positive probability. Not thread safe.
+ */
+final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedKeys, double falsePositiveProbability) {
+        if(expectedKeys <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter size expectedKeys=" + expectedKeys
+                    + " falsePositiveProbability=" + falsePositiveProbability);
+        }
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[Math.toIntExact((optimalBits + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+    }
+
+    /**
+     * @return false if the key was never added, true if it probably was
+     */
+    boolean mightContain(long a, long b, long c) {
+        long hash1 = hash(a, b, c);
+        long hash2 = mix(hash1) | 1; // double hashing, odd so all bits are reachable
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long a, long b, long c) {
+        long hash1 = hash(a, b, c);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    static long hash(long a, long b, long c) {
+        return mix(mix(mix(a) ^ b) ^ c);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads every input bit over all output bits
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.qapital.savings.event;
+
+/**
+ * Set of keys of three longs in flat arrays with open addressing (linear probing),
+ * 24 bytes per slot and no object per key. Not thread safe.
+ */
+final class LongTripleHashSet {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys; // three longs per slot
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    LongTripleHashSet(int initialCapacity) {
+        int slots = Integer.highestOneBit(Math.max(16, (int) (initialCapacity / LOAD_FACTOR)) - 1) << 1;
+        allocate(slots);
+    }
+
+    /**
+     * @return true if the key was added, false if it was already in the set
+     */
+    boolean add(long a, long b, long c) {
+        int slot = slot(a, b, c);
+        while (used[slot]) {
+            if(matches(slot, a, b, c)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot * 3] = a;
+        keys[slot * 3 + 1] = b;
+        keys[slot * 3 + 2] = c;
+        if(++size > (mask + 1) * LOAD_FACTOR) {
+            resize();
+        }
+        return true;
+    }
+
+    boolean contains(long a, long b, long c) {
+        int slot = slot(a, b, c);
+        while (used[slot]) {
+            if(matches(slot, a, b, c)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key was removed, false if it was not in the set
+     */
+    boolean remove(long a, long b, long c) {
+        int slot = slot(a, b, c);
+        while (used[slot]) {
+            if(matches(slot, a, b, c)) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Fills the hole left by a removed key with the following keys of its run that may move there,
+     * so lookups never stop early at the hole (backward shift deletion, no tombstones)
+     */
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if(!used[slot]) {
+                break;
+            }
+            int home = slot(keys[slot * 3], keys[slot * 3 + 1], keys[slot * 3 + 2]);
+            if(((slot - home) & mask) >= ((slot - hole) & mask)) { // the hole lies between home and slot
+                keys[hole * 3] = keys[slot * 3];
+                keys[hole * 3 + 1] = keys[slot * 3 + 1];
+                keys[hole * 3 + 2] = keys[slot * 3 + 2];
+                hole = slot;
+            }
+        }
+        used[hole] = false;
+    }
+
+    private boolean matches(int slot, long a, long b, long c) {
+        return keys[slot * 3] == a && keys[slot * 3 + 1] == b && keys[slot * 3 + 2] == c;
+    }
+
+    private int slot(long a, long b, long c) {
+        long hash = BloomFilter.hash(a, b, c);
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int slots) {
+        if(slots > Integer.MAX_VALUE / 3) {
+            throw new IllegalStateException("Too many keys: " + size);
+        }
+        keys = new long[slots * 3];
+        used = new boolean[slots];
+        mask = slots - 1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length * 2);
+        for (int oldSlot = 0; oldSlot < oldUsed.length; oldSlot++) {
+            if(oldUsed[oldSlot]) {
+                long a = oldKeys[oldSlot * 3], b = oldKeys[oldSlot * 3 + 1], c = oldKeys[oldSlot * 3 + 2];
+                int slot = slot(a, b, c);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot * 3] = a;
+                keys[slot * 3 + 1] = b;
+                keys[slot * 3 + 2] = c;
+            }
+        }
+    }
+
+}
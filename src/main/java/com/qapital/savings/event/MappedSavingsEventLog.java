@@ -0,0 +1,436 @@
+package com.qapital.savings.event;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of savings events in segment files of a directory. Only the segment appended to is
+ * memory mapped, full segments are sealed: unmapped and closed, and read as files when replayed.
+ * <p>
+ * Each record is the length and the CRC32 of its payload followed by the payload: the event in a fixed
+ * binary layout (longs, epoch day, enum ordinals and the unscaled bytes of the amount), about 80 bytes.
+ * Enum constants must therefore only be added at the end. A length of 0 marks the end of a segment.
+ * A segment is named after the id of its first event, a new one is started when a record does not fit.
+ * <p>
+ * Appends only write to the mapped memory. {@link #sync()} forces the written segment to disk,
+ * threads syncing at the same time share one force (group commit). A segment is forced when sealed.
+ * On opening, the segments are read to find the next id. A torn record at the end, e.g. after a crash,
+ * fails its CRC and the log continues from the last complete record.
+ */
+public class MappedSavingsEventLog implements SavingsEventStore, Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".events";
+    private static final int HEADER_SIZE = 8; // payload length and CRC32
+    private static final int MAX_AMOUNT_SIZE = 255;
+    private static final int MAX_PAYLOAD_SIZE = 72 + MAX_AMOUNT_SIZE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final byte NULL_BYTE = -1;
+    private static final SavingsEvent.EventName[] EVENT_NAMES = SavingsEvent.EventName.values();
+    private static final RuleType[] RULE_TYPES = RuleType.values();
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    // All below guarded by lock
+    private final List<SealedSegment> sealedSegments = new ArrayList<>();
+    private Segment activeSegment;
+    private final Set<Segment> unsyncedSegments = new LinkedHashSet<>();
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long nextId = 1;
+    private long appendedCount;
+    private long syncedCount;
+    private boolean syncing;
+    private boolean closed;
+
+    /**
+     * Opens the log in given directory, creating it if needed, and reads the existing segments
+     * @param directory the directory of the segment files
+     * @param segmentSize the size of new segment files in bytes
+     */
+    public MappedSavingsEventLog(Path directory, int segmentSize) throws IOException {
+        if(segmentSize < HEADER_SIZE + MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        long[] lastId = {0};
+        long[] count = {0};
+        Consumer<SavingsEvent> counter = savingsEvent -> {
+            lastId[0] = Math.max(lastId[0], savingsEvent.getId());
+            count[0]++;
+        };
+        for (Path path : paths.subList(0, Math.max(0, paths.size() - 1))) {
+            int limit = (int) Math.min(Files.size(path), Integer.MAX_VALUE);
+            int position = read(path, limit, counter);
+            if(position + HEADER_SIZE <= limit) {
+                log.warn("Ignoring savings event records after position={} of sealed segment={}", position, path);
+            }
+            sealedSegments.add(new SealedSegment(path, position));
+        }
+        if(paths.isEmpty()) {
+            activeSegment = Segment.open(segmentPath(nextId), segmentSize);
+        } else {
+            Path path = paths.get(paths.size() - 1);
+            activeSegment = Segment.open(path, segmentSize);
+            activeSegment.position = read(activeSegment.buffer, activeSegment.buffer.capacity(), counter);
+            if(activeSegment.position + HEADER_SIZE <= activeSegment.buffer.capacity() && activeSegment.buffer.getInt(activeSegment.position) != 0) {
+                log.warn("Discarding incomplete savings event record at position={} of segment={}", activeSegment.position, path);
+                for (int i = activeSegment.position; i < activeSegment.buffer.capacity(); i++) {
+                    activeSegment.buffer.put(i, (byte) 0);
+                }
+                activeSegment.buffer.force();
+            }
+        }
+        nextId = lastId[0] + 1;
+        appendedCount = syncedCount = count[0];
+        log.info("Opened savings event log directory={} with {} events in {} segments, nextId={}",
+                directory, count[0], sealedSegments.size() + 1, nextId);
+    }
+
+    @Override
+    public SavingsEvent append(SavingsEvent savingsEvent) {
+        if(savingsEvent.getId() != null) {
+            throw new IllegalArgumentException("Savings event already has id: " + savingsEvent);
+        }
+        lock.lock();
+        try {
+            if(closed) {
+                throw new IllegalStateException("Savings event log is closed");
+            }
+            SavingsEvent storedEvent = savingsEvent.withId(nextId);
+            payload.clear();
+            encode(storedEvent, payload);
+            payload.flip();
+            Segment segment = activeSegment;
+            if(segment.position + HEADER_SIZE + payload.remaining() > segment.buffer.capacity()) {
+                segment = roll();
+            }
+            write(segment);
+            nextId++;
+            appendedCount++;
+            return storedEvent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync() {
+        lock.lock();
+        try {
+            long target = appendedCount;
+            while (syncedCount < target) {
+                if(syncing) { // another thread is forcing, its force may cover our events
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long syncTarget = appendedCount;
+                List<Segment> segmentsToForce = new ArrayList<>(unsyncedSegments);
+                unsyncedSegments.clear();
+                boolean forced = false;
+                lock.unlock();
+                try {
+                    segmentsToForce.forEach(segment -> segment.buffer.force());
+                    forced = true;
+                } finally {
+                    lock.lock();
+                    syncing = false;
+                    if(forced) {
+                        syncedCount = Math.max(syncedCount, syncTarget);
+                    } else {
+                        unsyncedSegments.addAll(segmentsToForce);
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replays the events appended before the call, opening the sealed segments one at a time
+     */
+    @Override
+    public void replay(Consumer<SavingsEvent> savingsEventConsumer) {
+        List<SealedSegment> sealed;
+        ByteBuffer active;
+        int activeLimit;
+        lock.lock();
+        try {
+            sealed = new ArrayList<>(sealedSegments);
+            active = activeSegment.buffer.duplicate();
+            activeLimit = activeSegment.position;
+        } finally {
+            lock.unlock();
+        }
+        for (SealedSegment segment : sealed) {
+            read(segment.path, segment.limit, savingsEventConsumer);
+        }
+        read(active, activeLimit, savingsEventConsumer);
+    }
+
+    /**
+     * @return the id the next appended event gets
+     */
+    public long nextId() {
+        lock.lock();
+        try {
+            return nextId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the active segment to disk and closes its file, further appends fail
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            activeSegment.buffer.force();
+            activeSegment.channel.close();
+            syncedCount = appendedCount;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Seals the active segment and starts a new one. Forcing the sealed segment here, once per segment,
+     * keeps {@link #sync()} to the active segment. The mapping is released when the buffer is collected.
+     */
+    private Segment roll() {
+        try {
+            Segment sealed = activeSegment;
+            sealed.buffer.force();
+            unsyncedSegments.remove(sealed);
+            sealed.channel.close();
+            sealedSegments.add(new SealedSegment(sealed.path, sealed.position));
+            activeSegment = Segment.open(segmentPath(nextId), segmentSize);
+            log.debug("Started savings event log segment for id={}", nextId);
+            return activeSegment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long firstId) {
+        return directory.resolve(String.format("%020d%s", firstId, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Writes the payload as a record at the end of the segment. The length goes last,
+     * so a reader never sees the length of a record before its content.
+     */
+    private void write(Segment segment) {
+        int position = segment.position;
+        int payloadSize = payload.remaining();
+        crc.reset();
+        crc.update(payload.duplicate());
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.position(position + HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position, payloadSize);
+        segment.position = position + HEADER_SIZE + payloadSize;
+        unsyncedSegments.add(segment);
+    }
+
+    /**
+     * Reads the records of a segment file through a small buffer until the limit or the first invalid record
+     * @return the position after the last valid record
+     */
+    private static int read(Path path, int limit, Consumer<SavingsEvent> savingsEventConsumer) {
+        CRC32 recordCrc = new CRC32();
+        byte[] record = new byte[MAX_PAYLOAD_SIZE];
+        int position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_SIZE))) {
+            while (position + HEADER_SIZE <= limit) {
+                int payloadSize = in.readInt();
+                int recordChecksum = in.readInt();
+                if(payloadSize <= 0 || payloadSize > MAX_PAYLOAD_SIZE || position + HEADER_SIZE + payloadSize > limit) {
+                    break;
+                }
+                in.readFully(record, 0, payloadSize);
+                recordCrc.reset();
+                recordCrc.update(record, 0, payloadSize);
+                if((int) recordCrc.getValue() != recordChecksum) {
+                    break;
+                }
+                savingsEventConsumer.accept(decode(ByteBuffer.wrap(record, 0, payloadSize)));
+                position += HEADER_SIZE + payloadSize;
+            }
+        } catch (EOFException e) {
+            // a shorter file ends like a zero length
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return position;
+    }
+
+    /**
+     * Reads the records of a mapped segment until its end or the first invalid record
+     * @return the position after the last valid record
+     */
+    private static int read(ByteBuffer buffer, int limit, Consumer<SavingsEvent> savingsEventConsumer) {
+        CRC32 recordCrc = new CRC32();
+        int position = 0;
+        while (position + HEADER_SIZE <= limit) {
+            int payloadSize = buffer.getInt(position);
+            if(payloadSize <= 0 || payloadSize > MAX_PAYLOAD_SIZE || position + HEADER_SIZE + payloadSize > limit) {
+                break;
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.limit(position + HEADER_SIZE + payloadSize).position(position + HEADER_SIZE);
+            recordCrc.reset();
+            recordCrc.update(record.duplicate());
+            if((int) recordCrc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            savingsEventConsumer.accept(decode(record));
+            position += HEADER_SIZE + payloadSize;
+        }
+        return position;
+    }
+
+    private static void encode(SavingsEvent savingsEvent, ByteBuffer buffer) {
+        byte[] unscaledAmount = savingsEvent.getAmount().unscaledValue().toByteArray();
+        if(unscaledAmount.length > MAX_AMOUNT_SIZE) {
+            throw new IllegalArgumentException("Savings event amount too large: " + savingsEvent);
+        }
+        Instant created = savingsEvent.getCreated();
+        buffer.putLong(savingsEvent.getId());
+        buffer.putLong(orNull(savingsEvent.getUserId()));
+        buffer.putLong(orNull(savingsEvent.getSavingsGoalId()));
+        buffer.putLong(orNull(savingsEvent.getSavingsRuleId()));
+        buffer.putLong(orNull(savingsEvent.getTriggerId()));
+        buffer.putLong(orNull(savingsEvent.getSavingsTransferId()));
+        buffer.putLong(created == null ? NULL_LONG : created.getEpochSecond());
+        buffer.putInt(created == null ? 0 : created.getNano());
+        buffer.putInt(savingsEvent.getDate() == null ? NULL_INT : Math.toIntExact(savingsEvent.getDate().toEpochDay()));
+        buffer.put(savingsEvent.getEventName() == null ? NULL_BYTE : (byte) savingsEvent.getEventName().ordinal());
+        buffer.put(savingsEvent.getRuleType() == null ? NULL_BYTE : (byte) savingsEvent.getRuleType().ordinal());
+        buffer.put(Boolean.TRUE.equals(savingsEvent.isCancelled()) ? (byte) 1 : (byte) 0);
+        buffer.putInt(savingsEvent.getAmount().scale());
+        buffer.put((byte) unscaledAmount.length);
+        buffer.put(unscaledAmount);
+    }
+
+    private static SavingsEvent decode(ByteBuffer buffer) {
+        Long id = buffer.getLong();
+        Long userId = toNull(buffer.getLong());
+        Long savingsGoalId = toNull(buffer.getLong());
+        Long savingsRuleId = toNull(buffer.getLong());
+        Long triggerId = toNull(buffer.getLong());
+        Long savingsTransferId = toNull(buffer.getLong());
+        long createdSeconds = buffer.getLong();
+        int createdNanos = buffer.getInt();
+        int epochDay = buffer.getInt();
+        byte eventName = buffer.get();
+        byte ruleType = buffer.get();
+        boolean cancelled = buffer.get() == 1;
+        int scale = buffer.getInt();
+        byte[] unscaledAmount = new byte[buffer.get() & 0xFF];
+        buffer.get(unscaledAmount);
+        return new SavingsEvent(id, userId, savingsGoalId, savingsRuleId,
+                ruleType == NULL_BYTE ? null : RULE_TYPES[ruleType],
+                eventName == NULL_BYTE ? null : EVENT_NAMES[eventName],
+                epochDay == NULL_INT ? null : LocalDate.ofEpochDay(epochDay),
+                new BigDecimal(new BigInteger(unscaledAmount), scale),
+                triggerId, savingsTransferId, cancelled,
+                createdSeconds == NULL_LONG ? null : Instant.ofEpochSecond(createdSeconds, createdNanos));
+    }
+
+    private static long orNull(Long value) {
+        return value == null ? NULL_LONG : value;
+    }
+
+    private static Long toNull(long value) {
+        return value == NULL_LONG ? null : value;
+    }
+
+    private static final class SealedSegment {
+
+        private final Path path;
+        private final int limit;
+
+        private SealedSegment(Path path, int limit) {
+            this.path = path;
+            this.limit = limit;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Maps an existing segment file with its size, or a new one with given size
+         */
+        static Segment open(Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize == 0 ? size : fileSize));
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.qapital.savings.event;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hands the stored savings events to the sinks when they are published, after they became durable,
+ * so a sink never receives an event that is appended again after a failed sync
+ */
+public class PublishingSavingsEventStore implements SavingsEventStore {
+
+    private final SavingsEventStore savingsEventStore;
+    private final List<SavingsEventSink> savingsEventSinks;
+
+    public PublishingSavingsEventStore(SavingsEventStore savingsEventStore, List<SavingsEventSink> savingsEventSinks) {
+        this.savingsEventStore = savingsEventStore;
+        this.savingsEventSinks = savingsEventSinks;
+    }
+
+    @Override
+    public SavingsEvent append(SavingsEvent savingsEvent) {
+        return savingsEventStore.append(savingsEvent);
+    }
+
+    @Override
+    public void publish(SavingsEvent storedEvent) {
+        for (SavingsEventSink savingsEventSink : savingsEventSinks) {
+            savingsEventSink.accept(storedEvent);
+        }
+    }
+
+    @Override
+    public void sync() {
+        savingsEventStore.sync();
+    }
+
+    @Override
+    public void replay(Consumer<SavingsEvent> savingsEventConsumer) {
+        savingsEventStore.replay(savingsEventConsumer);
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.qapital.savings.event;
+
+/**
+ * Remembers which rule applications have been emitted, keyed on savings rule id, trigger id and savings goal id,
+ * so re-executions and retries do not emit the same event twice.
+ * <p>
+ * A bloom filter sized for the expected number of keys answers most lookups of new keys without touching
+ * the exact keys, the exact keys settle the rest. Only the latest keys are kept exactly, in two generations:
+ * when the newer one is full the older one is dropped. A key the bloom filter may contain but no generation
+ * holds anymore counts as new. Memory stays bounded however many events are emitted, and the keys are
+ * rebuilt from the event log on start.
+ * <p>
+ * Dropped keys are old emissions, which the rule executions that store events do not evaluate again:
+ * they skip the transactions up to the checkpoint of the rule, replays and date windows store nothing.
+ * The deduplicator settles retries and concurrent executions of recent transactions.
+ * <p>
+ * The keys are split over stripes by hash, each with its own lock, filter and generations, so concurrent
+ * executions rarely wait for each other. Events that are not rule applications, or miss one of the key fields,
+ * are never considered duplicates.
+ */
+public class SavingsEventDeduplicator {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_GENERATION_CAPACITY = 1024;
+    private static final int MAX_GENERATION_CAPACITY = 1 << 28; // keeps the slots of a generation within an array
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    /**
+     * Keeps as many exact keys as the bloom filter is sized for
+     */
+    public SavingsEventDeduplicator(long expectedKeys, double falsePositiveProbability) {
+        this(expectedKeys, falsePositiveProbability, expectedKeys);
+    }
+
+    /**
+     * @param expectedKeys the number of keys the bloom filter is sized for
+     * @param falsePositiveProbability the probability the bloom filter sends a new key to the exact keys
+     * @param maxExactKeys the most exact keys kept, about 50 bytes each, at least half of them are the latest keys
+     */
+    public SavingsEventDeduplicator(long expectedKeys, double falsePositiveProbability, long maxExactKeys) {
+        long generationCapacity = Math.max(1, maxExactKeys / 2 / stripes.length);
+        if(maxExactKeys < 1 || generationCapacity > MAX_GENERATION_CAPACITY) {
+            throw new IllegalArgumentException("Invalid maxExactKeys=" + maxExactKeys);
+        }
+        long stripeExpectedKeys = Math.max(1, expectedKeys / stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(new BloomFilter(stripeExpectedKeys, falsePositiveProbability), (int) generationCapacity);
+        }
+    }
+
+    /**
+     * Records the emission of the event
+     * @param savingsEvent the event to emit
+     * @return false if an event with the same key has been emitted before
+     */
+    public boolean firstEmission(SavingsEvent savingsEvent) {
+        if(!hasKey(savingsEvent)) {
+            return true;
+        }
+        long savingsRuleId = savingsEvent.getSavingsRuleId();
+        long triggerId = savingsEvent.getTriggerId();
+        long savingsGoalId = savingsEvent.getSavingsGoalId();
+        return stripe(savingsRuleId, triggerId, savingsGoalId).add(savingsRuleId, triggerId, savingsGoalId);
+    }
+
+    /**
+     * Forgets the emission of an event that did not become durable, so it is emitted again
+     * @param savingsEvent an event of which {@link #firstEmission(SavingsEvent)} returned true
+     */
+    public void forget(SavingsEvent savingsEvent) {
+        if(!hasKey(savingsEvent)) {
+            return;
+        }
+        long savingsRuleId = savingsEvent.getSavingsRuleId();
+        long triggerId = savingsEvent.getTriggerId();
+        long savingsGoalId = savingsEvent.getSavingsGoalId();
+        stripe(savingsRuleId, triggerId, savingsGoalId).remove(savingsRuleId, triggerId, savingsGoalId);
+    }
+
+    /**
+     * @return the number of exact keys
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static boolean hasKey(SavingsEvent savingsEvent) {
+        return savingsEvent.getEventName() == SavingsEvent.EventName.rule_application && savingsEvent.getSavingsRuleId() != null
+                && savingsEvent.getTriggerId() != null && savingsEvent.getSavingsGoalId() != null;
+    }
+
+    private Stripe stripe(long a, long b, long c) {
+        return stripes[(int) (BloomFilter.hash(a, b, c) >>> (64 - STRIPE_BITS))];
+    }
+
+    private static final class Stripe {
+
+        private final BloomFilter bloomFilter;
+        private final int generationCapacity;
+        private LongTripleHashSet latestKeys;
+        private LongTripleHashSet olderKeys;
+
+        Stripe(BloomFilter bloomFilter, int generationCapacity) {
+            this.bloomFilter = bloomFilter;
+            this.generationCapacity = generationCapacity;
+            this.latestKeys = newGeneration();
+            this.olderKeys = newGeneration();
+        }
+
+        synchronized boolean add(long a, long b, long c) {
+            if(bloomFilter.mightContain(a, b, c)) {
+                if(latestKeys.contains(a, b, c) || olderKeys.contains(a, b, c)) {
+                    return false;
+                }
+            } else {
+                bloomFilter.put(a, b, c);
+            }
+            latestKeys.add(a, b, c);
+            if(latestKeys.size() >= generationCapacity) {
+                olderKeys = latestKeys;
+                latestKeys = newGeneration();
+            }
+            return true;
+        }
+
+        /**
+         * The bloom filter keeps the key, the exact keys then tell it is new
+         */
+        synchronized void remove(long a, long b, long c) {
+            if(!latestKeys.remove(a, b, c)) {
+                olderKeys.remove(a, b, c);
+            }
+        }
+
+        synchronized int size() {
+            return latestKeys.size() + olderKeys.size();
+        }
+
+        private LongTripleHashSet newGeneration() {
+            return new LongTripleHashSet(Math.min(INITIAL_GENERATION_CAPACITY, generationCapacity));
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.qapital.savings.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+@Configuration
+public class SavingsEventLogConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    @Bean(destroyMethod = "close")
+    public MappedSavingsEventLog savingsEventLog(
+            @Value("${savings.events.log.directory:data/events}") String directory,
+            @Value("${savings.events.log.segment-size-mb:64}") int segmentSizeMb) throws IOException {
+        return new MappedSavingsEventLog(Paths.get(directory), segmentSizeMb * 1024 * 1024);
+    }
+
+    @Bean
+    @Primary
+    public PublishingSavingsEventStore publishingSavingsEventStore(MappedSavingsEventLog savingsEventLog,
+                                                                   ObjectProvider<List<SavingsEventSink>> savingsEventSinks) {
+        List<SavingsEventSink> sinks = savingsEventSinks.getIfAvailable();
+        return new PublishingSavingsEventStore(savingsEventLog, sinks == null ? Collections.emptyList() : sinks);
+    }
+
+    /**
+     * Deduplicator that knows the rule applications in the log, so duplicates are detected across restarts
+     */
+    @Bean
+    public SavingsEventDeduplicator savingsEventDeduplicator(
+            MappedSavingsEventLog savingsEventLog,
+            @Value("${savings.events.dedup.expected-keys:10000000}") long expectedKeys,
+            @Value("${savings.events.dedup.false-positive-probability:0.01}") double falsePositiveProbability,
+            @Value("${savings.events.dedup.max-exact-keys:4000000}") long maxExactKeys) {
+        SavingsEventDeduplicator savingsEventDeduplicator = new SavingsEventDeduplicator(expectedKeys, falsePositiveProbability, maxExactKeys);
+        savingsEventLog.replay(savingsEventDeduplicator::firstEmission);
+        log.info("Loaded {} emitted savings event keys", savingsEventDeduplicator.size());
+        return savingsEventDeduplicator;
+    }
+
+}
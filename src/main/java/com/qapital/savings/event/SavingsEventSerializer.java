@@ -0,0 +1,123 @@
+package com.qapital.savings.event;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes the fields of a {@link SavingsEvent} straight to the generator, in the order and format
+ * of the bean serializer with the application configuration: null fields are left out and dates
+ * are ISO strings, or timestamps when {@link SerializationFeature#WRITE_DATES_AS_TIMESTAMPS} is enabled.
+ * The events of an execution share their date and creation instant, so the last formatted ones are kept.
+ */
+public class SavingsEventSerializer extends StdSerializer<SavingsEvent> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString SAVINGS_GOAL_ID = new SerializedString("savingsGoalId");
+    private static final SerializedString SAVINGS_RULE_ID = new SerializedString("savingsRuleId");
+    private static final SerializedString RULE_TYPE = new SerializedString("ruleType");
+    private static final SerializedString EVENT_NAME = new SerializedString("eventName");
+    private static final SerializedString DATE = new SerializedString("date");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString TRIGGER_ID = new SerializedString("triggerId");
+    private static final SerializedString SAVINGS_TRANSFER_ID = new SerializedString("savingsTransferId");
+    private static final SerializedString CANCELLED = new SerializedString("cancelled");
+    private static final SerializedString CREATED = new SerializedString("created");
+
+    private volatile Formatted<LocalDate> lastDate = new Formatted<>(null, null);
+    private volatile Formatted<Instant> lastCreated = new Formatted<>(null, null);
+
+    public SavingsEventSerializer() {
+        super(SavingsEvent.class);
+    }
+
+    @Override
+    public void serialize(SavingsEvent savingsEvent, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        writeNumber(generator, ID, savingsEvent.getId());
+        writeNumber(generator, USER_ID, savingsEvent.getUserId());
+        writeNumber(generator, SAVINGS_GOAL_ID, savingsEvent.getSavingsGoalId());
+        writeNumber(generator, SAVINGS_RULE_ID, savingsEvent.getSavingsRuleId());
+        if(savingsEvent.getRuleType() != null) {
+            generator.writeFieldName(RULE_TYPE);
+            generator.writeString(savingsEvent.getRuleType().name());
+        }
+        if(savingsEvent.getEventName() != null) {
+            generator.writeFieldName(EVENT_NAME);
+            generator.writeString(savingsEvent.getEventName().name());
+        }
+        boolean timestamps = provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if(savingsEvent.getDate() != null) {
+            if(timestamps) {
+                provider.defaultSerializeField(DATE.getValue(), savingsEvent.getDate(), generator);
+            } else {
+                generator.writeFieldName(DATE);
+                generator.writeString(formatDate(savingsEvent.getDate()));
+            }
+        }
+        if(savingsEvent.getAmount() != null) {
+            generator.writeFieldName(AMOUNT);
+            generator.writeNumber(savingsEvent.getAmount());
+        }
+        writeNumber(generator, TRIGGER_ID, savingsEvent.getTriggerId());
+        writeNumber(generator, SAVINGS_TRANSFER_ID, savingsEvent.getSavingsTransferId());
+        if(savingsEvent.isCancelled() != null) {
+            generator.writeFieldName(CANCELLED);
+            generator.writeBoolean(savingsEvent.isCancelled());
+        }
+        if(savingsEvent.getCreated() != null) {
+            if(timestamps) {
+                provider.defaultSerializeField(CREATED.getValue(), savingsEvent.getCreated(), generator);
+            } else {
+                generator.writeFieldName(CREATED);
+                generator.writeString(formatCreated(savingsEvent.getCreated()));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializedString fieldName, Long value) throws IOException {
+        if(value != null) {
+            generator.writeFieldName(fieldName);
+            generator.writeNumber(value);
+        }
+    }
+
+    private String formatDate(LocalDate date) {
+        Formatted<LocalDate> formatted = lastDate;
+        if(!date.equals(formatted.value)) {
+            formatted = new Formatted<>(date, date.toString());
+            lastDate = formatted;
+        }
+        return formatted.text;
+    }
+
+    private String formatCreated(Instant created) {
+        Formatted<Instant> formatted = lastCreated;
+        if(!created.equals(formatted.value)) {
+            formatted = new Formatted<>(created, DateTimeFormatter.ISO_INSTANT.format(created));
+            lastCreated = formatted;
+        }
+        return formatted.text;
+    }
+
+    private static final class Formatted<T> {
+
+        private final T value;
+        private final String text;
+
+        Formatted(T value, String text) {
+            this.value = value;
+            this.text = text;
+        }
+    }
+
+}
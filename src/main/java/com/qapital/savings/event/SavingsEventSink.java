@@ -0,0 +1,15 @@
+package com.qapital.savings.event;
+
+/**
+ * Downstream receiver of stored savings events, e.g. transfers or notifications
+ */
+public interface SavingsEventSink {
+
+    /**
+     * Receives a stored savings event once it is durable, on the thread that executed the rule.
+     * A sink that falls behind may block, which slows down rule executions and sweeps accordingly.
+     * @param savingsEvent the stored event, with its id
+     */
+    void accept(SavingsEvent savingsEvent);
+
+}
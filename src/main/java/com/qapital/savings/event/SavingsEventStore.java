@@ -0,0 +1,51 @@
+package com.qapital.savings.event;
+
+import java.util.function.Consumer;
+
+public interface SavingsEventStore {
+
+    /**
+     * Store that keeps nothing, events are returned as given, without id
+     */
+    SavingsEventStore TRANSIENT = new SavingsEventStore() {
+        @Override
+        public SavingsEvent append(SavingsEvent savingsEvent) {
+            return savingsEvent;
+        }
+
+        @Override
+        public void sync() {
+        }
+
+        @Override
+        public void replay(Consumer<SavingsEvent> savingsEventConsumer) {
+        }
+    };
+
+    /**
+     * Hands a stored event downstream once {@link #sync()} made it durable, the default hands it to no one
+     * @param storedEvent an event returned by {@link #append(SavingsEvent)}
+     */
+    default void publish(SavingsEvent storedEvent) {
+    }
+
+    /**
+     * Appends the event and assigns it the next id. The event is durable only after {@link #sync()}.
+     * @param savingsEvent the event to store, without id
+     * @return the stored event, with its id
+     * @throws IllegalArgumentException if the event already has an id
+     */
+    SavingsEvent append(SavingsEvent savingsEvent);
+
+    /**
+     * Blocks until all events appended so far are durable
+     */
+    void sync();
+
+    /**
+     * Reads all stored events, in the order they were appended
+     * @param savingsEventConsumer receives the events
+     */
+    void replay(Consumer<SavingsEvent> savingsEventConsumer);
+
+}
@@ -0,0 +1,26 @@
+package com.qapital.savings.goal;
+
+import com.qapital.savings.event.MappedSavingsEventLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SavingsGoalConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Totals rebuilt from the log, then kept up to date as a sink of the stored events
+     */
+    @Bean
+    public SavingsGoalTotals savingsGoalTotals(MappedSavingsEventLog savingsEventLog) {
+        SavingsGoalTotals savingsGoalTotals = new SavingsGoalTotals();
+        long start = System.nanoTime();
+        savingsEventLog.replay(savingsGoalTotals::accept);
+        log.info("Loaded savings goal totals in {} ms", (System.nanoTime() - start) / 1_000_000);
+        return savingsGoalTotals;
+    }
+
+}
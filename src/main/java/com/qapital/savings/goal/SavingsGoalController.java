@@ -0,0 +1,56 @@
+package com.qapital.savings.goal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static com.qapital.SmileHttpMessageConverter.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Amounts saved to savings goals, served from the running totals without executing rules
+ */
+@RestController
+@RequestMapping(value = "/api/savings/goal", produces = {APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+public class SavingsGoalController {
+
+    private final SavingsGoalTotals savingsGoalTotals;
+
+    @Autowired
+    public SavingsGoalController(SavingsGoalTotals savingsGoalTotals) {
+        this.savingsGoalTotals = savingsGoalTotals;
+    }
+
+    @RequestMapping(value = "/{savingsGoalId}/total", method = GET)
+    public SavingsGoalTotal total(@PathVariable Long savingsGoalId) {
+        return new SavingsGoalTotal(savingsGoalId, savingsGoalTotals.total(savingsGoalId));
+    }
+
+    /**
+     * @return the amount saved to the goal by each rule, keyed by savings rule id
+     */
+    @RequestMapping(value = "/{savingsGoalId}/total/rules", method = GET)
+    public Map<Long, BigDecimal> totalsByRule(@PathVariable Long savingsGoalId) {
+        return savingsGoalTotals.totalsByRule(savingsGoalId);
+    }
+
+    /**
+     * @return the amount saved to the goal on each day with savings, both dates inclusive
+     */
+    @RequestMapping(value = "/{savingsGoalId}/total/daily", method = GET)
+    public SortedMap<LocalDate, BigDecimal> dailyTotals(@PathVariable Long savingsGoalId,
+                                                        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return savingsGoalTotals.dailyTotals(savingsGoalId, from, to);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.qapital.savings.goal;
+
+import java.math.BigDecimal;
+
+/**
+ * The amount saved to a savings goal
+ */
+public class SavingsGoalTotal {
+
+    private final Long savingsGoalId;
+    private final BigDecimal amount;
+
+    public SavingsGoalTotal(Long savingsGoalId, BigDecimal amount) {
+        this.savingsGoalId = savingsGoalId;
+        this.amount = amount;
+    }
+
+    public Long getSavingsGoalId() {
+        return savingsGoalId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+}
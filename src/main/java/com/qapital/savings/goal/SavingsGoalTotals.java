@@ -0,0 +1,84 @@
+package com.qapital.savings.goal;
+
+import com.qapital.savings.event.SavingsEvent;
+import com.qapital.savings.event.SavingsEventSink;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Running totals of the savings goals, per goal, per goal and rule and per goal and day,
+ * updated with each durable savings event. Totals are read without locking.
+ */
+public class SavingsGoalTotals implements SavingsEventSink {
+
+    private final ConcurrentMap<Long, GoalTotals> totalsByGoal = new ConcurrentHashMap<>();
+
+    @Override
+    public void accept(SavingsEvent savingsEvent) {
+        if(savingsEvent.getSavingsGoalId() == null || savingsEvent.getAmount().signum() == 0) {
+            return;
+        }
+        totalsByGoal.computeIfAbsent(savingsEvent.getSavingsGoalId(), savingsGoalId -> new GoalTotals())
+                .add(savingsEvent.getSavingsRuleId(), savingsEvent.getDate(), savingsEvent.getAmount());
+    }
+
+    /**
+     * @return the amount saved to the goal, zero for unknown goals
+     */
+    public BigDecimal total(Long savingsGoalId) {
+        GoalTotals goalTotals = totalsByGoal.get(savingsGoalId);
+        return goalTotals == null ? BigDecimal.ZERO : goalTotals.total;
+    }
+
+    /**
+     * @return the amount saved to the goal by each rule, by savings rule id
+     */
+    public Map<Long, BigDecimal> totalsByRule(Long savingsGoalId) {
+        GoalTotals goalTotals = totalsByGoal.get(savingsGoalId);
+        return goalTotals == null ? Collections.emptyMap() : Collections.unmodifiableMap(goalTotals.byRule);
+    }
+
+    /**
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return the amount saved to the goal on each day with savings in the range, by transaction date
+     */
+    public SortedMap<LocalDate, BigDecimal> dailyTotals(Long savingsGoalId, LocalDate from, LocalDate to) {
+        GoalTotals goalTotals = totalsByGoal.get(savingsGoalId);
+        if(goalTotals == null || from.isAfter(to)) {
+            return Collections.emptySortedMap();
+        }
+        return Collections.unmodifiableSortedMap(goalTotals.byDay.subMap(from, true, to, true));
+    }
+
+    /**
+     * Totals of one goal, each total is updated atomically
+     */
+    private static final class GoalTotals {
+
+        private volatile BigDecimal total = BigDecimal.ZERO;
+        private final ConcurrentMap<Long, BigDecimal> byRule = new ConcurrentHashMap<>();
+        private final ConcurrentNavigableMap<LocalDate, BigDecimal> byDay = new ConcurrentSkipListMap<>();
+
+        void add(Long savingsRuleId, LocalDate date, BigDecimal amount) {
+            synchronized (this) {
+                total = total.add(amount);
+            }
+            if(savingsRuleId != null) {
+                byRule.merge(savingsRuleId, amount, BigDecimal::add);
+            }
+            if(date != null) {
+                byDay.merge(date, amount, BigDecimal::add);
+            }
+        }
+    }
+
+}
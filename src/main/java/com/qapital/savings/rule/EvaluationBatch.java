@@ -0,0 +1,82 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.TransactionBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A batch of transactions being evaluated, with state shared by the evaluators of all rules:
+ * the transaction descriptions are normalized once per distinct description, on first use,
+ * and numbered as merchant ids, so evaluators match merchants by comparing ints.
+ * Not thread safe, meant for one execution.
+ */
+public class EvaluationBatch {
+
+    /**
+     * Merchant id of transactions without description, and of merchants not in the batch
+     */
+    public static final int NO_MERCHANT = -1;
+
+    /**
+     * Merchant id of rules that apply to the transactions of any merchant, see {@link RuleEvaluator#merchantIdIn(EvaluationBatch)}
+     */
+    public static final int ANY_MERCHANT = -2;
+
+    private final TransactionBatch transactions;
+    private final MerchantNormalizer merchantNormalizer;
+    private Map<String, Integer> merchantIds;
+    private int[] merchantIdsByDescription;
+
+    public EvaluationBatch(TransactionBatch transactions, MerchantNormalizer merchantNormalizer) {
+        this.transactions = transactions;
+        this.merchantNormalizer = merchantNormalizer;
+    }
+
+    public TransactionBatch getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return the merchant id of the transaction at index, {@link #NO_MERCHANT} if it has no description
+     */
+    public int merchantId(int index) {
+        int descriptionId = transactions.descriptionId(index);
+        if(descriptionId == TransactionBatch.NO_DESCRIPTION) {
+            return NO_MERCHANT;
+        }
+        indexMerchants();
+        return merchantIdsByDescription[descriptionId];
+    }
+
+    /**
+     * @param normalizedMerchant a description normalized with the {@link MerchantNormalizer} of the batch
+     * @return the merchant id of the transactions with that merchant, {@link #NO_MERCHANT} if there are none
+     */
+    public int merchantIdOf(String normalizedMerchant) {
+        indexMerchants();
+        return merchantIds.getOrDefault(normalizedMerchant, NO_MERCHANT);
+    }
+
+    /**
+     * @return the number of merchants of the batch, merchant ids are below it
+     */
+    public int merchantCount() {
+        indexMerchants();
+        return merchantIds.size();
+    }
+
+    private void indexMerchants() {
+        if(merchantIdsByDescription != null) {
+            return;
+        }
+        merchantIds = new HashMap<>();
+        merchantIdsByDescription = new int[transactions.dictionarySize()];
+        for (int descriptionId = 0; descriptionId < merchantIdsByDescription.length; descriptionId++) {
+            String merchant = merchantNormalizer.normalize(transactions.dictionaryDescription(descriptionId));
+            Integer merchantId = merchantIds.putIfAbsent(merchant, merchantIds.size());
+            merchantIdsByDescription[descriptionId] = merchantId == null ? merchantIds.size() - 1 : merchantId;
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.qapital.savings.rule;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+import static com.qapital.savings.rule.StandardSavingsRulesService.divideToGoalIds;
+
+/**
+ * Guilty pleasure rules save the rule amount, split between the goals of the rule,
+ * for each expense at the place of the rule
+ */
+@Component
+public class GuiltyPleasureRuleEvaluatorFactory implements RuleEvaluatorFactory {
+
+    private final MerchantNormalizer merchantNormalizer;
+
+    @Autowired
+    public GuiltyPleasureRuleEvaluatorFactory(MerchantNormalizer merchantNormalizer) {
+        this.merchantNormalizer = merchantNormalizer;
+    }
+
+    @Override
+    public RuleType getRuleType() {
+        return RuleType.guiltypleasure;
+    }
+
+    @Override
+    public RuleEvaluator compile(SavingsRule savingsRule) {
+        return new GuiltyPleasureRuleEvaluator(savingsRule, merchantNormalizer.normalize(savingsRule.getPlaceDescription()),
+                divideToGoalIds(savingsRule.getAmount(), savingsRule.getSavingsGoalIds().size()));
+    }
+
+    private static final class GuiltyPleasureRuleEvaluator implements RuleEvaluator {
+
+        private final SavingsRule savingsRule;
+        private final String place;
+        private final BigDecimal amountPerGoal;
+
+        GuiltyPleasureRuleEvaluator(SavingsRule savingsRule, String place, BigDecimal amountPerGoal) {
+            this.savingsRule = savingsRule;
+            this.place = place;
+            this.amountPerGoal = amountPerGoal;
+        }
+
+        @Override
+        public SavingsRule getSavingsRule() {
+            return savingsRule;
+        }
+
+        @Override
+        public TransactionEvaluator bind(EvaluationBatch batch) {
+            int placeId = merchantIdIn(batch);
+            if(placeId == EvaluationBatch.NO_MERCHANT) {
+                return index -> null;
+            }
+            return index -> batch.merchantId(index) == placeId ? amountPerGoal : null;
+        }
+
+        @Override
+        public int merchantIdIn(EvaluationBatch batch) {
+            return place == null ? EvaluationBatch.NO_MERCHANT : batch.merchantIdOf(place);
+        }
+    }
+
+}
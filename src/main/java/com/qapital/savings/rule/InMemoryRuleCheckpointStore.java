@@ -0,0 +1,28 @@
+package com.qapital.savings.rule;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class InMemoryRuleCheckpointStore implements RuleCheckpointStore {
+
+    private final ConcurrentMap<Long, RuleCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public RuleCheckpoint checkpointFor(Long savingsRuleId) {
+        return checkpoints.get(savingsRuleId);
+    }
+
+    @Override
+    public void advance(RuleCheckpoint checkpoint) {
+        checkpoints.merge(checkpoint.getSavingsRuleId(), checkpoint, RuleCheckpoint::merge);
+    }
+
+    @Override
+    public void reset(Long savingsRuleId) {
+        checkpoints.remove(savingsRuleId);
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.qapital.savings.rule;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import com.qapital.savings.rule.SavingsRule.Status;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the rules of each user in an immutable snapshot, indexed by rule type and status.
+ * Lookups read the current snapshot without locking. Changes build a new snapshot of the user
+ * and replace it atomically, so a reader sees all or nothing of a change.
+ * <p>
+ * The owner of each rule id is claimed before a rule is stored, so an id never ends up with two users,
+ * whether it was assigned here or given by the client.
+ */
+@Repository
+public class InMemorySavingsRuleRepository implements SavingsRuleRepository {
+
+    private final ConcurrentMap<Long, UserRules> rulesByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> userIdByRuleId = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Override
+    public List<SavingsRule> activeRulesForUser(Long userId) {
+        return rulesForUser(userId, null, Status.active);
+    }
+
+    @Override
+    public List<SavingsRule> rulesForUser(Long userId) {
+        UserRules userRules = rulesByUser.get(userId);
+        return userRules == null ? Collections.emptyList() : userRules.all;
+    }
+
+    @Override
+    public long[] userIds() {
+        long[] userIds = rulesByUser.keySet().stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(userIds);
+        return userIds;
+    }
+
+    @Override
+    public List<SavingsRule> rulesForUser(Long userId, RuleType ruleType, Status status) {
+        UserRules userRules = rulesByUser.get(userId);
+        return userRules == null ? Collections.emptyList() : userRules.withTypeAndStatus(ruleType, status);
+    }
+
+    @Override
+    public SavingsRule save(SavingsRule savingsRule) {
+        Objects.requireNonNull(savingsRule.getUserId());
+        SavingsRule storedRule;
+        if(savingsRule.getId() == null) {
+            long id;
+            do { // skips ids a client claimed after the sequence passed them
+                id = lastId.incrementAndGet();
+            } while (userIdByRuleId.putIfAbsent(id, savingsRule.getUserId()) != null);
+            storedRule = savingsRule.withId(id);
+        } else {
+            Long owner = userIdByRuleId.putIfAbsent(savingsRule.getId(), savingsRule.getUserId());
+            if(owner != null && !owner.equals(savingsRule.getUserId())) {
+                throw new IllegalArgumentException("Savings rule id=" + savingsRule.getId() + " belongs to another user");
+            }
+            storedRule = savingsRule;
+            lastId.accumulateAndGet(savingsRule.getId(), Math::max);
+        }
+        rulesByUser.compute(storedRule.getUserId(),
+                (userId, userRules) -> (userRules == null ? UserRules.EMPTY : userRules).with(storedRule));
+        return storedRule;
+    }
+
+    @Override
+    public SavingsRule changeStatus(Long userId, Long savingsRuleId, Status status) {
+        Objects.requireNonNull(status);
+        SavingsRule[] changedRule = new SavingsRule[1];
+        rulesByUser.computeIfPresent(userId, (id, userRules) -> {
+            SavingsRule savingsRule = userRules.find(savingsRuleId);
+            if(savingsRule == null) {
+                return userRules;
+            }
+            changedRule[0] = savingsRule.withStatus(status);
+            return userRules.with(changedRule[0]);
+        });
+        return changedRule[0];
+    }
+
+    /**
+     * Immutable rules of a user. Lists are shared between lookups and never modified,
+     * the index has one list per rule type and status, and one per status over all types.
+     */
+    private static final class UserRules {
+
+        private static final UserRules EMPTY = new UserRules(new SavingsRule[0]);
+        private static final int STATUS_COUNT = Status.values().length;
+
+        private final SavingsRule[] rules;
+        private final List<SavingsRule> all;
+        private final List<SavingsRule>[] index;
+
+        @SuppressWarnings("unchecked")
+        private UserRules(SavingsRule[] rules) {
+            this.rules = rules;
+            this.all = Collections.unmodifiableList(Arrays.asList(rules));
+            this.index = new List[(RuleType.values().length + 1) * STATUS_COUNT];
+            for (SavingsRule savingsRule : rules) {
+                add(slot(savingsRule.getRuleType(), savingsRule.getStatus()), savingsRule);
+                add(slot(null, savingsRule.getStatus()), savingsRule);
+            }
+            for (int slot = 0; slot < index.length; slot++) {
+                index[slot] = index[slot] == null ? Collections.emptyList() : Collections.unmodifiableList(index[slot]);
+            }
+        }
+
+        private void add(int slot, SavingsRule savingsRule) {
+            if(index[slot] == null) {
+                index[slot] = new ArrayList<>(2);
+            }
+            index[slot].add(savingsRule);
+        }
+
+        /**
+         * @param ruleType the rule type, null for all types
+         */
+        private static int slot(RuleType ruleType, Status status) {
+            return (ruleType == null ? 0 : ruleType.ordinal() + 1) * STATUS_COUNT + status.ordinal();
+        }
+
+        List<SavingsRule> withTypeAndStatus(RuleType ruleType, Status status) {
+            return index[slot(ruleType, status)];
+        }
+
+        SavingsRule find(Long savingsRuleId) {
+            for (SavingsRule savingsRule : rules) {
+                if(savingsRule.getId().equals(savingsRuleId)) {
+                    return savingsRule;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return rules with given rule added, or replacing the rule with the same id
+         */
+        UserRules with(SavingsRule savingsRule) {
+            for (int i = 0; i < rules.length; i++) {
+                if(rules[i].getId().equals(savingsRule.getId())) {
+                    SavingsRule[] changed = rules.clone();
+                    changed[i] = savingsRule;
+                    return new UserRules(changed);
+                }
+            }
+            SavingsRule[] added = Arrays.copyOf(rules, rules.length + 1);
+            added[rules.length] = savingsRule;
+            return new UserRules(added);
+        }
+    }
+
+}
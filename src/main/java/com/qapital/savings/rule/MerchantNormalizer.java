@@ -0,0 +1,59 @@
+package com.qapital.savings.rule;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Normalizes place and transaction descriptions so they can be matched with a hash lookup:
+ * trims, folds case and resolves aliases, e.g. "STARBUCKS #1234" to "starbucks".
+ * Aliases are configured as savings.merchant.aliases, keyed by the description to replace.
+ */
+@Component
+@ConfigurationProperties(prefix = "savings.merchant")
+public class MerchantNormalizer {
+
+    private final Map<String, String> aliases = new HashMap<>();
+    private volatile Map<String, String> normalizedAliases = Collections.emptyMap();
+
+    public MerchantNormalizer() {
+    }
+
+    public MerchantNormalizer(Map<String, String> aliases) {
+        this.aliases.putAll(aliases);
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        Map<String, String> normalized = new HashMap<>();
+        aliases.forEach((alias, merchant) -> normalized.put(fold(alias), fold(merchant)));
+        normalizedAliases = normalized;
+    }
+
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * @param description place or transaction description, can be null
+     * @return normalized description, null for null
+     */
+    public String normalize(String description) {
+        if(description == null) {
+            return null;
+        }
+        String folded = fold(description);
+        return normalizedAliases.getOrDefault(folded, folded);
+    }
+
+    private static String fold(String description) {
+        return description.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.MinorUnits;
+import com.qapital.bankdata.transaction.TransactionBatch;
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+import static com.qapital.savings.rule.StandardSavingsRulesService.divideToGoalIds;
+import static com.qapital.savings.rule.StandardSavingsRulesService.roundup;
+
+/**
+ * Roundup rules save the difference between each expense and the next multiple of the rule amount,
+ * split between the goals of the rule
+ */
+@Component
+public class RoundupRuleEvaluatorFactory implements RuleEvaluatorFactory {
+
+    @Override
+    public RuleType getRuleType() {
+        return RuleType.roundup;
+    }
+
+    @Override
+    public RuleEvaluator compile(SavingsRule savingsRule) {
+        return new RoundupRuleEvaluator(savingsRule);
+    }
+
+    private static final class RoundupRuleEvaluator implements RuleEvaluator {
+
+        private final SavingsRule savingsRule;
+        private final BigDecimal ruleAmount;
+        private final long amount;
+        private final int numberOfGoalIds;
+
+        RoundupRuleEvaluator(SavingsRule savingsRule) {
+            this.savingsRule = savingsRule;
+            this.ruleAmount = savingsRule.getAmount();
+            this.amount = MinorUnits.of(ruleAmount);
+            this.numberOfGoalIds = savingsRule.getSavingsGoalIds().size();
+        }
+
+        @Override
+        public SavingsRule getSavingsRule() {
+            return savingsRule;
+        }
+
+        @Override
+        public TransactionEvaluator bind(EvaluationBatch batch) {
+            TransactionBatch transactions = batch.getTransactions();
+            return index -> amountPerGoal(transactions, index);
+        }
+
+        private BigDecimal amountPerGoal(TransactionBatch transactions, int index) {
+            long transactionAmount = transactions.amount(index);
+            BigDecimal roundUpAmount;
+            if(amount != MinorUnits.NOT_REPRESENTABLE && transactionAmount != MinorUnits.NOT_REPRESENTABLE) {
+                long amountPerGoal = divideToGoalIds(roundup(transactionAmount, amount), numberOfGoalIds);
+                roundUpAmount = amountPerGoal > 0 ? MinorUnits.toBigDecimal(amountPerGoal, resultScale(transactions.amountScale(index))) : null;
+            } else {
+                roundUpAmount = divideToGoalIds(roundup(transactions.exactAmount(index), ruleAmount), numberOfGoalIds);
+            }
+            return roundUpAmount != null && roundUpAmount.signum() == 1 ? roundUpAmount : null;
+        }
+
+        /**
+         * @return the scale the BigDecimal roundup of a transaction amount with given scale would have
+         */
+        private int resultScale(int transactionAmountScale) {
+            return numberOfGoalIds <= 1
+                    ? Math.max(transactionAmountScale, ruleAmount.scale())
+                    : MinorUnits.SCALE;
+        }
+    }
+
+}
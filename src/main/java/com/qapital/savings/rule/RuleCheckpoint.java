@@ -0,0 +1,116 @@
+package com.qapital.savings.rule;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.LongStream;
+
+/**
+ * Watermark of the transactions a Savings Rule has already been applied to.
+ * Transactions with an id up to transactionId are not processed again by the rule, nor are the
+ * transactions pushed to the rule above the watermark, until the watermark moves past them.
+ */
+public class RuleCheckpoint {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final Long savingsRuleId;
+    private final Long transactionId;
+    private final LocalDate transactionDate;
+    private final long[] ingestedTransactionIds;
+
+    public RuleCheckpoint(Long savingsRuleId, Long transactionId, LocalDate transactionDate) {
+        this(savingsRuleId, transactionId, transactionDate, NO_IDS);
+    }
+
+    private RuleCheckpoint(Long savingsRuleId, Long transactionId, LocalDate transactionDate, long[] ingestedTransactionIds) {
+        this.savingsRuleId = Objects.requireNonNull(savingsRuleId);
+        this.transactionId = Objects.requireNonNull(transactionId);
+        this.transactionDate = transactionDate;
+        this.ingestedTransactionIds = ingestedTransactionIds;
+    }
+
+    /**
+     * @param transactionIds the ids of transactions pushed to the rule, which pulls must not process again
+     * @return a checkpoint that moves no watermark and records the pushed transactions
+     */
+    public static RuleCheckpoint ingested(Long savingsRuleId, long... transactionIds) {
+        return new RuleCheckpoint(savingsRuleId, Long.MIN_VALUE, null, LongStream.of(transactionIds).sorted().distinct().toArray());
+    }
+
+    /**
+     * @return whether the rule has processed the transaction
+     */
+    public boolean isProcessed(long transactionId) {
+        return transactionId <= this.transactionId || Arrays.binarySearch(ingestedTransactionIds, transactionId) >= 0;
+    }
+
+    public Long getSavingsRuleId() {
+        return savingsRuleId;
+    }
+
+    /**
+     * @return highest transaction id processed, {@link Long#MIN_VALUE} if only pushed transactions were
+     */
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * @return latest transaction date processed, can be null
+     */
+    public LocalDate getTransactionDate() {
+        return transactionDate;
+    }
+
+    /**
+     * @return ids of the pushed transactions above the highest transaction id, ascending
+     */
+    public long[] getIngestedTransactionIds() {
+        return ingestedTransactionIds.clone();
+    }
+
+    /**
+     * @param other checkpoint of the same rule
+     * @return checkpoint with the highest transaction id and the latest date of both,
+     *         and the pushed transactions of both that are above the highest transaction id
+     */
+    RuleCheckpoint merge(RuleCheckpoint other) {
+        Long maxTransactionId = Math.max(transactionId, other.transactionId);
+        LocalDate maxTransactionDate = transactionDate == null || (other.transactionDate != null && other.transactionDate.isAfter(transactionDate))
+                ? other.transactionDate : transactionDate;
+        long[] mergedIngestedIds = LongStream.concat(LongStream.of(ingestedTransactionIds), LongStream.of(other.ingestedTransactionIds))
+                .filter(ingestedId -> ingestedId > maxTransactionId).sorted().distinct().toArray();
+        if(maxTransactionId.equals(transactionId) && Objects.equals(maxTransactionDate, transactionDate)
+                && Arrays.equals(mergedIngestedIds, ingestedTransactionIds)) {
+            return this;
+        }
+        return new RuleCheckpoint(savingsRuleId, maxTransactionId, maxTransactionDate, mergedIngestedIds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RuleCheckpoint that = (RuleCheckpoint) o;
+        return Objects.equals(savingsRuleId, that.savingsRuleId) &&
+                Objects.equals(transactionId, that.transactionId) &&
+                Objects.equals(transactionDate, that.transactionDate) &&
+                Arrays.equals(ingestedTransactionIds, that.ingestedTransactionIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(savingsRuleId, transactionId, transactionDate) * 31 + Arrays.hashCode(ingestedTransactionIds);
+    }
+
+    @Override
+    public String toString() {
+        return "RuleCheckpoint{" +
+                "savingsRuleId=" + savingsRuleId +
+                ", transactionId=" + transactionId +
+                ", transactionDate=" + transactionDate +
+                ", ingestedTransactionIds=" + Arrays.toString(ingestedTransactionIds) +
+                '}';
+    }
+}
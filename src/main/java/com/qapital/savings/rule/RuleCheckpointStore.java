@@ -0,0 +1,24 @@
+package com.qapital.savings.rule;
+
+public interface RuleCheckpointStore {
+
+    /**
+     * @param savingsRuleId the savings rule id
+     * @return the checkpoint of the rule, null if the rule has not been executed yet
+     */
+    RuleCheckpoint checkpointFor(Long savingsRuleId);
+
+    /**
+     * Moves the checkpoint of the rule forward. A checkpoint never moves back, the highest
+     * transaction id and the latest date of the stored and the given checkpoint are kept.
+     * @param checkpoint the checkpoint to store
+     */
+    void advance(RuleCheckpoint checkpoint);
+
+    /**
+     * Removes the checkpoint of the rule, so its next execution processes all transactions
+     * @param savingsRuleId the savings rule id
+     */
+    void reset(Long savingsRuleId);
+
+}
@@ -0,0 +1,42 @@
+package com.qapital.savings.rule;
+
+import java.math.BigDecimal;
+
+/**
+ * A savings rule compiled for evaluation, with its amounts and match criteria resolved once.
+ * Immutable, so it can be cached and shared between executions.
+ */
+public interface RuleEvaluator {
+
+    /**
+     * @return the rule this evaluator was compiled from
+     */
+    SavingsRule getSavingsRule();
+
+    /**
+     * Resolves what the rule needs from a batch, e.g. which descriptions match, once per batch
+     * @return evaluator of the transactions of the batch, used by one thread
+     */
+    TransactionEvaluator bind(EvaluationBatch batch);
+
+    /**
+     * Lets the executions index rules by merchant, so a transaction is only evaluated by the rules of its merchant
+     * and the rules of any merchant
+     * @return the merchant id of the only transactions of the batch the rule can apply to, {@link EvaluationBatch#NO_MERCHANT}
+     *         if it applies to none, {@link EvaluationBatch#ANY_MERCHANT} if it is not limited to a merchant
+     */
+    default int merchantIdIn(EvaluationBatch batch) {
+        return EvaluationBatch.ANY_MERCHANT;
+    }
+
+    @FunctionalInterface
+    interface TransactionEvaluator {
+
+        /**
+         * @param index index of an expense transaction in the batch
+         * @return the amount to save to each goal of the rule, null when the rule does not apply
+         */
+        BigDecimal amountPerGoal(int index);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.qapital.savings.rule;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+
+/**
+ * Compiles the rules of one {@link RuleType}. Factories registered as beans are picked up by
+ * {@link RuleEvaluators}, so a new rule type needs a factory and no change to the service.
+ */
+public interface RuleEvaluatorFactory {
+
+    RuleType getRuleType();
+
+    /**
+     * @param savingsRule active rule with goals, of the type of this factory
+     */
+    RuleEvaluator compile(SavingsRule savingsRule);
+
+}
@@ -0,0 +1,76 @@
+package com.qapital.savings.rule;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles savings rules with the {@link RuleEvaluatorFactory} of their type and caches the
+ * evaluators by rule id, up to a maximum number of rules. A cached evaluator is used only while
+ * the rule is unchanged, and is dropped when the rule is saved or its status changes.
+ */
+@Component
+public class RuleEvaluators {
+
+    private final Map<RuleType, RuleEvaluatorFactory> factories = new EnumMap<>(RuleType.class);
+    private final Cache<Long, RuleEvaluator> evaluatorsByRuleId;
+
+    /**
+     * @param maximumRules the most rules with a cached evaluator, the least recently used ones are evicted
+     */
+    @Autowired
+    public RuleEvaluators(List<RuleEvaluatorFactory> ruleEvaluatorFactories,
+                          @Value("${savings.rules.evaluators.maximum-rules:100000}") long maximumRules) {
+        this.evaluatorsByRuleId = Caffeine.newBuilder().maximumSize(maximumRules).build();
+        for (RuleEvaluatorFactory factory : ruleEvaluatorFactories) {
+            if(factories.put(factory.getRuleType(), factory) != null) {
+                throw new IllegalArgumentException("Several evaluator factories for ruleType=" + factory.getRuleType());
+            }
+        }
+    }
+
+    /**
+     * @return evaluators of the built in rule types
+     */
+    public static RuleEvaluators standard(MerchantNormalizer merchantNormalizer) {
+        return new RuleEvaluators(Arrays.asList(
+                new RoundupRuleEvaluatorFactory(), new GuiltyPleasureRuleEvaluatorFactory(merchantNormalizer)), 10_000);
+    }
+
+    /**
+     * @param savingsRule active rule with goals
+     * @return the evaluator of the rule, null if there is no factory for its type
+     */
+    public RuleEvaluator evaluatorFor(SavingsRule savingsRule) {
+        RuleEvaluatorFactory factory = savingsRule.getRuleType() == null ? null : factories.get(savingsRule.getRuleType());
+        if(factory == null) {
+            return null;
+        }
+        if(savingsRule.getId() == null) {
+            return factory.compile(savingsRule);
+        }
+        RuleEvaluator cached = evaluatorsByRuleId.getIfPresent(savingsRule.getId());
+        if(cached != null && cached.getSavingsRule().equals(savingsRule)) {
+            return cached;
+        }
+        // Compiled once per rule version, concurrent executions of the same rule wait for it
+        return evaluatorsByRuleId.asMap().compute(savingsRule.getId(), (savingsRuleId, evaluator) ->
+                evaluator != null && evaluator.getSavingsRule().equals(savingsRule) ? evaluator : factory.compile(savingsRule));
+    }
+
+    /**
+     * Drops the cached evaluator of a changed or deleted rule
+     */
+    public void invalidate(Long savingsRuleId) {
+        evaluatorsByRuleId.invalidate(savingsRuleId);
+    }
+
+}
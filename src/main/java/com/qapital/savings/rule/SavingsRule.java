@@ -83,6 +83,17 @@ public class SavingsRule {
 		return status;
 	}
 
+	/**
+	 * @param id Id
+	 * @return SavingsRule with given Id
+	 */
+	public SavingsRule withId(Long id) {
+		if(Objects.equals(id, this.id)) {
+			return this;
+		}
+		return new SavingsRule(id, userId, ruleType, placeDescription, amount, savingsGoalIds, status);
+	}
+
     /**
      * @param status new Status
      * @return SavingsRule with new Status
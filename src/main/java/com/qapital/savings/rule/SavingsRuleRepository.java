@@ -0,0 +1,52 @@
+package com.qapital.savings.rule;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import com.qapital.savings.rule.SavingsRule.Status;
+
+import java.util.List;
+
+public interface SavingsRuleRepository {
+
+    /**
+     * @param userId the user id
+     * @return the active rules of the user
+     */
+    List<SavingsRule> activeRulesForUser(Long userId);
+
+    /**
+     * @param userId the user id
+     * @return all rules of the user, in any status
+     */
+    List<SavingsRule> rulesForUser(Long userId);
+
+    /**
+     * @return the ids of the users with rules, ascending
+     */
+    long[] userIds();
+
+    /**
+     * @param userId the user id
+     * @param ruleType the rule type, null for all types
+     * @param status the status
+     * @return the rules of the user with given type and status
+     */
+    List<SavingsRule> rulesForUser(Long userId, RuleType ruleType, Status status);
+
+    /**
+     * Stores a new rule, or replaces the rule of the user with the same id. Ids are unique over all users.
+     * @param savingsRule the rule, an id is assigned when it has none
+     * @return the stored rule
+     * @throws IllegalArgumentException if the id is the id of a rule of another user
+     */
+    SavingsRule save(SavingsRule savingsRule);
+
+    /**
+     * Changes the status of a rule of the user
+     * @param userId the user id
+     * @param savingsRuleId the savings rule id
+     * @param status the new status
+     * @return the rule with the new status, null if the user has no such rule
+     */
+    SavingsRule changeStatus(Long userId, Long savingsRuleId, Status status);
+
+}
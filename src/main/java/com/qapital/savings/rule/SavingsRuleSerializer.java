@@ -0,0 +1,70 @@
+package com.qapital.savings.rule;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes the fields of a {@link SavingsRule} straight to the generator, in the order and format
+ * of the bean serializer with the application configuration, null fields are left out
+ */
+public class SavingsRuleSerializer extends StdSerializer<SavingsRule> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString RULE_TYPE = new SerializedString("ruleType");
+    private static final SerializedString PLACE_DESCRIPTION = new SerializedString("placeDescription");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString SAVINGS_GOAL_IDS = new SerializedString("savingsGoalIds");
+    private static final SerializedString STATUS = new SerializedString("status");
+
+    public SavingsRuleSerializer() {
+        super(SavingsRule.class);
+    }
+
+    @Override
+    public void serialize(SavingsRule savingsRule, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        if(savingsRule.getId() != null) {
+            generator.writeFieldName(ID);
+            generator.writeNumber(savingsRule.getId());
+        }
+        if(savingsRule.getUserId() != null) {
+            generator.writeFieldName(USER_ID);
+            generator.writeNumber(savingsRule.getUserId());
+        }
+        if(savingsRule.getRuleType() != null) {
+            generator.writeFieldName(RULE_TYPE);
+            generator.writeString(savingsRule.getRuleType().name());
+        }
+        if(savingsRule.getPlaceDescription() != null) {
+            generator.writeFieldName(PLACE_DESCRIPTION);
+            generator.writeString(savingsRule.getPlaceDescription());
+        }
+        if(savingsRule.getAmount() != null) {
+            generator.writeFieldName(AMOUNT);
+            generator.writeNumber(savingsRule.getAmount());
+        }
+        if(savingsRule.getSavingsGoalIds() != null) {
+            generator.writeFieldName(SAVINGS_GOAL_IDS);
+            generator.writeStartArray();
+            for (Long savingsGoalId : savingsRule.getSavingsGoalIds()) {
+                if(savingsGoalId == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(savingsGoalId);
+                }
+            }
+            generator.writeEndArray();
+        }
+        if(savingsRule.getStatus() != null) {
+            generator.writeFieldName(STATUS);
+            generator.writeString(savingsRule.getStatus().name());
+        }
+        generator.writeEndObject();
+    }
+
+}
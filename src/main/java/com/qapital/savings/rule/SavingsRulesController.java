@@ -1,29 +1,73 @@
 package com.qapital.savings.rule;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.qapital.bankdata.transaction.Transaction;
 import com.qapital.savings.event.SavingsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import static com.qapital.SmileHttpMessageConverter.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
+/**
+ * Rules and their execution, as JSON by default or as Smile
+ * ({@value com.qapital.SmileHttpMessageConverter#APPLICATION_SMILE_VALUE}) for internal clients
+ */
 @RestController
 @RequestMapping(value = "/api/savings/rule",
-        produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+        produces = {APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE}, consumes = {APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
 public class SavingsRulesController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
     private final SavingsRulesService savingsRulesService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int maxBatchSize;
 
+    /**
+     * @param maxBatchSize the largest number of rules executed in one batch request
+     */
     @Autowired
-    public SavingsRulesController(SavingsRulesService savingsRulesService) {
+    public SavingsRulesController(SavingsRulesService savingsRulesService, ObjectMapper objectMapper, Validator validator,
+                                  @Value("${savings.rules.batch.max-size:1000}") int maxBatchSize) {
         this.savingsRulesService = savingsRulesService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @RequestMapping(value = "/active/{userId}", method = GET)
@@ -31,9 +75,100 @@ public class SavingsRulesController {
         return savingsRulesService.activeRulesForUser(userId);
     }
 
+    @RequestMapping(method = POST)
+    public SavingsRule saveRule(@RequestBody @Valid SavingsRule savingsRule) {
+        return savingsRulesService.saveRule(savingsRule);
+    }
+
+    @RequestMapping(value = "/{savingsRuleId}/status", method = POST)
+    public ResponseEntity<SavingsRule> changeRuleStatus(@PathVariable Long savingsRuleId,
+                                                        @RequestParam("userId") Long userId,
+                                                        @RequestParam("status") SavingsRule.Status status) {
+        SavingsRule savingsRule = savingsRulesService.changeRuleStatus(userId, savingsRuleId, status);
+        return savingsRule == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(savingsRule);
+    }
+
+    /**
+     * Executes the rule asynchronously, the request thread is released while the transactions are fetched
+     */
     @RequestMapping(value = "/execute", method = POST)
-    public List<SavingsEvent> executeRule(@RequestBody @Valid SavingsRule savingsRule) {
-        return savingsRulesService.executeRule(savingsRule);
+    public CompletableFuture<List<SavingsEvent>> executeRule(@RequestBody @Valid SavingsRule savingsRule,
+                                                             @RequestParam(value = "replay", defaultValue = "false") boolean replay) {
+        return replay ? savingsRulesService.replayRuleAsync(savingsRule) : savingsRulesService.executeRuleAsync(savingsRule);
+    }
+
+    /**
+     * Executes the rule on the transactions dated from and to, both inclusive, without moving its checkpoint
+     */
+    @RequestMapping(value = "/execute/window", method = POST)
+    public List<SavingsEvent> executeRuleBetween(@RequestBody @Valid SavingsRule savingsRule,
+                                                 @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                 @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return savingsRulesService.executeRule(savingsRule, from, to);
+    }
+
+    /**
+     * Streams the savings events as newline delimited JSON while the rule is executed,
+     * so the response does not hold all events in memory
+     */
+    @RequestMapping(value = "/execute", method = POST, produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRule(@RequestBody @Valid SavingsRule savingsRule,
+                                                            @RequestParam(value = "replay", defaultValue = "false") boolean replay) {
+        ObjectWriter eventWriter = objectMapper.writerFor(SavingsEvent.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE); // let the buffers decide when to send
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                savingsRulesService.streamRule(savingsRule, replay, savingsEvent -> {
+                    try {
+                        eventWriter.writeValue(generator, savingsEvent);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Executes at most the configured maximum of rules, each validated like a single rule
+     */
+    @RequestMapping(value = "/execute/batch", method = POST)
+    public Map<Long, List<SavingsEvent>> executeRules(@RequestBody @Valid List<SavingsRule> savingsRules) {
+        if(savingsRules.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch of " + savingsRules.size() + " rules exceeds the maximum of " + maxBatchSize);
+        }
+        // @Valid does not reach the elements of a list body
+        for (SavingsRule savingsRule : savingsRules) {
+            Set<ConstraintViolation<SavingsRule>> violations = validator.validate(savingsRule);
+            if(!violations.isEmpty()) {
+                ConstraintViolation<SavingsRule> violation = violations.iterator().next();
+                throw new IllegalArgumentException("Invalid savings rule in batch: " + violation.getPropertyPath() + " " + violation.getMessage());
+            }
+        }
+        return savingsRulesService.executeRules(savingsRules);
+    }
+
+    @RequestMapping(value = "/execute/active/{userId}", method = POST)
+    public List<SavingsEvent> executeActiveRules(@PathVariable Long userId) {
+        return savingsRulesService.executeActiveRules(userId);
+    }
+
+    /**
+     * Executes the active rules of the users on new transactions pushed from the bank feed,
+     * the events are stored and published before the response
+     */
+    @RequestMapping(value = "/execute/transactions", method = POST)
+    public List<SavingsEvent> ingestTransactions(@RequestBody List<Transaction> transactions) {
+        return savingsRulesService.ingestTransactions(transactions);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(BAD_REQUEST)
+    public void handleIllegalArgument(IllegalArgumentException exception) {
+        log.debug("Bad request: {}", exception.getMessage());
     }
 
 }
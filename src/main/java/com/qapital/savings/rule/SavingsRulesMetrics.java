@@ -0,0 +1,84 @@
+package com.qapital.savings.rule;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.qapital.savings.rule.SavingsRule.RuleType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the rule engine, registered as savings.rules.*:
+ * evaluation time and events per rule type, transactions scanned, skipped rules and duplicates.
+ * A pass over the transactions of a user records the evaluation time of each rule type it applies,
+ * the fetches of the transactions are timed on their own, a page counting as a fetch.
+ */
+class SavingsRulesMetrics {
+
+    private static final String PREFIX = "savings.rules";
+
+    private final Map<RuleType, Timer> evaluationTimers = new EnumMap<>(RuleType.class);
+    private final Map<RuleType, Counter> eventCounters = new EnumMap<>(RuleType.class);
+    private final Map<RuleType, Histogram> eventsPerExecution = new EnumMap<>(RuleType.class);
+    private final Timer fetchTimer;
+    private final Counter transactionsScanned;
+    private final Counter expenses;
+    private final Counter rulesSkipped;
+    private final Counter duplicateEvents;
+
+    SavingsRulesMetrics(MetricRegistry metricRegistry) {
+        for (RuleType ruleType : RuleType.values()) {
+            evaluationTimers.put(ruleType, metricRegistry.timer(MetricRegistry.name(PREFIX, "evaluation", ruleType.name())));
+            eventCounters.put(ruleType, metricRegistry.counter(MetricRegistry.name(PREFIX, "events", ruleType.name())));
+            eventsPerExecution.put(ruleType, metricRegistry.histogram(MetricRegistry.name(PREFIX, "events-per-execution", ruleType.name())));
+        }
+        this.fetchTimer = metricRegistry.timer(MetricRegistry.name(PREFIX, "transactions", "fetch"));
+        this.transactionsScanned = metricRegistry.counter(MetricRegistry.name(PREFIX, "transactions", "scanned"));
+        this.expenses = metricRegistry.counter(MetricRegistry.name(PREFIX, "transactions", "expenses"));
+        this.rulesSkipped = metricRegistry.counter(MetricRegistry.name(PREFIX, "skipped"));
+        this.duplicateEvents = metricRegistry.counter(MetricRegistry.name(PREFIX, "events", "duplicates"));
+    }
+
+    /**
+     * @param evaluationNanos the time spent evaluating the rules of the type in one pass
+     */
+    void evaluated(RuleType ruleType, long evaluationNanos) {
+        evaluationTimers.get(ruleType).update(evaluationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param fetchNanos the time the rule engine waited for a page of transactions, cache hits included
+     */
+    void transactionsFetched(long fetchNanos) {
+        fetchTimer.update(fetchNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void ruleSkipped() {
+        rulesSkipped.inc();
+    }
+
+    /**
+     * @param scanned the transactions after the checkpoints
+     * @param expenseCount the expense transactions among them, the ones rules are applied to
+     */
+    void transactionsScanned(int scanned, int expenseCount) {
+        transactionsScanned.inc(scanned);
+        expenses.inc(expenseCount);
+    }
+
+    /**
+     * @param eventCount the events emitted by the execution, skipped duplicates are counted separately
+     */
+    void ruleExecuted(RuleType ruleType, int eventCount) {
+        eventCounters.get(ruleType).inc(eventCount);
+        eventsPerExecution.get(ruleType).update(eventCount);
+    }
+
+    void duplicateSkipped() {
+        duplicateEvents.inc();
+    }
+
+}
@@ -1,8 +1,14 @@
 package com.qapital.savings.rule;
 
+import com.qapital.bankdata.transaction.Transaction;
 import com.qapital.savings.event.SavingsEvent;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface SavingsRulesService {
 
@@ -14,10 +20,100 @@ public interface SavingsRulesService {
     List<SavingsRule> activeRulesForUser(Long userId);
 
     /**
-     * Executes the logic for given savings rule
+     * Stores a new savings rule, or replaces the rule with the same id
+     * @param savingsRule the savings rule, an id is assigned when it has none
+     * @return the stored savings rule
+     */
+    SavingsRule saveRule(SavingsRule savingsRule);
+
+    /**
+     * Pauses, resumes or deletes a savings rule of the user
+     * @param userId the user id
+     * @param savingsRuleId the savings rule id
+     * @param status the new status
+     * @return the savings rule with the new status, null if the user has no such rule
+     */
+    SavingsRule changeRuleStatus(Long userId, Long savingsRuleId, SavingsRule.Status status);
+
+    /**
+     * Executes the logic for given savings rule, on the transactions that are newer than
+     * the ones processed by earlier executions of the rule. A rule without id, e.g. one that
+     * was not saved, is evaluated on all transactions and its events are neither stored nor published.
      * @param savingsRule the configured savings rule
      * @return a list of savings events that are the result of the execution of the rule
      */
     List<SavingsEvent> executeRule(SavingsRule savingsRule);
 
+    /**
+     * Same as {@link #executeRule(SavingsRule)}, without blocking the calling thread while the transactions are fetched
+     * @param savingsRule the configured savings rule
+     * @return the savings events that are the result of the execution of the rule, when completed
+     */
+    CompletableFuture<List<SavingsEvent>> executeRuleAsync(SavingsRule savingsRule);
+
+    /**
+     * Executes the logic for given savings rule on all transactions of the user, including the ones
+     * processed by earlier executions. Used for rebuilding the events of a rule: the events are only
+     * returned, neither stored nor published, and the checkpoint of the rule is left as it is, so
+     * transactions not processed yet are still emitted by the next execution.
+     * @param savingsRule the configured savings rule
+     * @return a list of savings events that are the result of the execution of the rule
+     */
+    List<SavingsEvent> replayRule(SavingsRule savingsRule);
+
+    /**
+     * Same as {@link #replayRule(SavingsRule)}, without blocking the calling thread while the transactions are fetched
+     * @param savingsRule the configured savings rule
+     * @return the savings events that are the result of the execution of the rule, when completed
+     */
+    CompletableFuture<List<SavingsEvent>> replayRuleAsync(SavingsRule savingsRule);
+
+    /**
+     * Executes the logic for given savings rule like {@link #executeRule(SavingsRule)}, or {@link #replayRule(SavingsRule)}
+     * when replaying, handing each savings event to the consumer as soon as it is created instead of collecting them
+     * @param savingsRule the configured savings rule
+     * @param replay whether the transactions processed by earlier executions are included, read-only
+     * @param savingsEventConsumer receives the savings events in the order they are created
+     */
+    void streamRule(SavingsRule savingsRule, boolean replay, Consumer<SavingsEvent> savingsEventConsumer);
+
+    /**
+     * Executes all active savings rules of the specified user in a single pass over the user's transactions
+     * @param userId the user id
+     * @return a list of savings events that are the result of the execution of the rules
+     */
+    List<SavingsEvent> executeActiveRules(Long userId);
+
+    /**
+     * Executes the rule on the transactions dated in a range, e.g. to recompute what the rule saved
+     * last week. Checkpoints are ignored and left as they are, and the events are only returned,
+     * neither stored nor recorded as emitted.
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return the savings events of the transactions in the range, by transaction date
+     * @throws IllegalArgumentException if from is after to
+     */
+    List<SavingsEvent> executeRule(SavingsRule savingsRule, LocalDate from, LocalDate to);
+
+    /**
+     * Executes a batch of savings rules of many users in parallel. The rules of a user
+     * are executed together, sharing one fetch of the user's transactions.
+     * @param savingsRules the configured savings rules, each with a unique id
+     * @return the savings events of each rule, keyed by the savings rule id
+     * @throws IllegalArgumentException if a rule is incomplete or its id is missing or not unique in the batch
+     */
+    Map<Long, List<SavingsEvent>> executeRules(Collection<SavingsRule> savingsRules);
+
+    /**
+     * Executes the active rules of the users of new transactions on those transactions only,
+     * instead of fetching the users' transactions. The transactions of a user are expected in
+     * the order of their ids, transactions already processed by a rule are not processed again.
+     * The ingested transactions are recorded with the checkpoints of the rules, which stay in place
+     * otherwise, so the next execution skips them and still processes earlier transactions not pulled yet.
+     * @param transactions new transactions, of one or more users
+     * @return the savings events of the transactions
+     * @throws IllegalArgumentException if a transaction has no id, user id or amount
+     */
+    List<SavingsEvent> ingestTransactions(List<Transaction> transactions);
+
 }
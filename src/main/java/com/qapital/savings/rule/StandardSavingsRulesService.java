@@ -1,83 +1,500 @@
 package com.qapital.savings.rule;
 
+import com.codahale.metrics.MetricRegistry;
+import com.qapital.bankdata.transaction.AsyncTransactionsService;
+import com.qapital.bankdata.transaction.ExecutorAsyncTransactionsService;
 import com.qapital.bankdata.transaction.Transaction;
+import com.qapital.bankdata.transaction.TransactionBatch;
+import com.qapital.bankdata.transaction.TransactionPage;
 import com.qapital.bankdata.transaction.TransactionsService;
+import com.qapital.concurrent.PlatformTaskExecutors;
+import com.qapital.concurrent.TaskExecutors;
 import com.qapital.savings.event.SavingsEvent;
+import com.qapital.savings.event.SavingsEventDeduplicator;
+import com.qapital.savings.event.SavingsEventStore;
+import com.qapital.savings.rule.SavingsRule.RuleType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 import static com.qapital.savings.event.SavingsEvent.EventName.rule_application;
-import static com.qapital.savings.rule.SavingsRule.RuleType.guiltypleasure;
-import static com.qapital.savings.rule.SavingsRule.RuleType.roundup;
 
 @Service
 public class StandardSavingsRulesService implements SavingsRulesService {
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+    private final SavingsRuleRepository savingsRuleRepository;
     private final TransactionsService transactionsService;
+    private final AsyncTransactionsService asyncTransactionsService;
+    private final MerchantNormalizer merchantNormalizer;
+    private final RuleEvaluators ruleEvaluators;
+    private final RuleCheckpointStore ruleCheckpointStore;
+    private final SavingsEventStore savingsEventStore;
+    private final SavingsEventDeduplicator savingsEventDeduplicator;
+    private final SavingsRulesMetrics metrics;
+    private final ExecutorService batchPool;
+    private final int transactionPageSize;
 
-    @Autowired
     public StandardSavingsRulesService(TransactionsService transactionsService) {
+        this(new InMemorySavingsRuleRepository(), transactionsService, new ExecutorAsyncTransactionsService(transactionsService, ForkJoinPool.commonPool()),
+                new MerchantNormalizer(), RuleEvaluators.standard(new MerchantNormalizer()), new InMemoryRuleCheckpointStore(), SavingsEventStore.TRANSIENT,
+                new SavingsEventDeduplicator(100_000, 0.01), new MetricRegistry(),
+                new PlatformTaskExecutors(), Runtime.getRuntime().availableProcessors(), 10_000);
+    }
+
+    @Autowired
+    public StandardSavingsRulesService(SavingsRuleRepository savingsRuleRepository,
+                                       TransactionsService transactionsService,
+                                       AsyncTransactionsService asyncTransactionsService,
+                                       MerchantNormalizer merchantNormalizer,
+                                       RuleEvaluators ruleEvaluators,
+                                       RuleCheckpointStore ruleCheckpointStore,
+                                       SavingsEventStore savingsEventStore,
+                                       SavingsEventDeduplicator savingsEventDeduplicator,
+                                       MetricRegistry metricRegistry,
+                                       TaskExecutors taskExecutors,
+                                       @Value("${savings.rules.batch.parallelism:16}") int batchParallelism,
+                                       @Value("${savings.rules.transaction-page-size:10000}") int transactionPageSize) {
+        this.savingsRuleRepository = savingsRuleRepository;
         this.transactionsService = transactionsService;
+        this.asyncTransactionsService = asyncTransactionsService;
+        this.merchantNormalizer = merchantNormalizer;
+        this.ruleEvaluators = ruleEvaluators;
+        this.ruleCheckpointStore = ruleCheckpointStore;
+        this.savingsEventStore = savingsEventStore;
+        this.savingsEventDeduplicator = savingsEventDeduplicator;
+        this.metrics = new SavingsRulesMetrics(metricRegistry);
+        this.batchPool = taskExecutors.newExecutor("savings-batch", batchParallelism);
+        this.transactionPageSize = transactionPageSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdown();
     }
 
     @Override
     public List<SavingsRule> activeRulesForUser(Long userId) {
-        SavingsRule guiltyPleasureRule = SavingsRule.createGuiltyPleasureRule(1L, userId, "Starbucks", new BigDecimal("3.00"), 1L, 2L);
-        SavingsRule roundupRule = SavingsRule.createRoundupRule(2L, userId, new BigDecimal("2.00"), 1L);
+        return savingsRuleRepository.activeRulesForUser(userId);
+    }
 
-        return Collections.unmodifiableList(Arrays.asList(guiltyPleasureRule, roundupRule));
+    @Override
+    public SavingsRule saveRule(SavingsRule savingsRule) {
+        SavingsRule storedRule = savingsRuleRepository.save(savingsRule);
+        ruleEvaluators.invalidate(storedRule.getId());
+        return storedRule;
+    }
+
+    @Override
+    public SavingsRule changeRuleStatus(Long userId, Long savingsRuleId, SavingsRule.Status status) {
+        SavingsRule changedRule = savingsRuleRepository.changeStatus(userId, savingsRuleId, status);
+        if(changedRule != null) {
+            ruleEvaluators.invalidate(savingsRuleId);
+        }
+        return changedRule;
     }
 
     @Override
     public List<SavingsEvent> executeRule(SavingsRule savingsRule) {
-        if(!savingsRule.isActive() || savingsRule.getSavingsGoalIds().isEmpty()) {
-            log.debug("Savings rule inactive or without goals for savingsRule=[{}]", savingsRule);
-            return Collections.emptyList();
+        return applyRules(savingsRule.getUserId(), Collections.singletonList(savingsRule), false).get(0);
+    }
+
+    @Override
+    public CompletableFuture<List<SavingsEvent>> executeRuleAsync(SavingsRule savingsRule) {
+        return applyRuleAsync(savingsRule, false);
+    }
+
+    @Override
+    public CompletableFuture<List<SavingsEvent>> replayRuleAsync(SavingsRule savingsRule) {
+        return applyRuleAsync(savingsRule, true);
+    }
+
+    @Override
+    public List<SavingsEvent> replayRule(SavingsRule savingsRule) {
+        return applyRules(savingsRule.getUserId(), Collections.singletonList(savingsRule), true).get(0);
+    }
+
+    @Override
+    public void streamRule(SavingsRule savingsRule, boolean replay, Consumer<SavingsEvent> savingsEventConsumer) {
+        applyRules(savingsRule.getUserId(), Collections.singletonList(savingsRule), replay,
+                Collections.singletonList(savingsEventConsumer));
+    }
+
+    @Override
+    public List<SavingsEvent> executeActiveRules(Long userId) {
+        List<SavingsRule> savingsRules = activeRulesForUser(userId);
+        List<SavingsEvent> savingsEvents = new ArrayList<>();
+        applyRules(userId, savingsRules, false, Collections.nCopies(savingsRules.size(), savingsEvents::add));
+        return Collections.unmodifiableList(savingsEvents);
+    }
+
+    @Override
+    public List<SavingsEvent> executeRule(SavingsRule savingsRule, LocalDate from, LocalDate to) {
+        if(from.isAfter(to)) {
+            throw new IllegalArgumentException("Date range from=" + from + " is after to=" + to);
         }
-        List<Transaction> transactions = transactionsService.latestTransactionsForUser(savingsRule.getUserId());
-        if(transactions == null || transactions.isEmpty()) {
-            log.debug("No transactions for userId={}", savingsRule.getUserId());
+        RuleEvaluator ruleEvaluator = evaluatorFor(savingsRule);
+        if(ruleEvaluator == null) {
             return Collections.emptyList();
         }
         List<SavingsEvent> savingsEvents = new ArrayList<>();
+        // Checkpoints are neither applied nor moved and nothing is stored, the window is only read
+        RuleExecution ruleExecution = new RuleExecution(ruleEvaluator, null, false, new Emitter(savingsEvents::add, true));
+        Long userId = savingsRule.getUserId();
+        long started = System.nanoTime();
+        List<Transaction> transactions = transactionsService.transactionsForUserBetween(userId, from, to);
+        metrics.transactionsFetched(System.nanoTime() - started);
+        applyRules(userId, Collections.singletonList(ruleExecution), transactions);
+        return Collections.unmodifiableList(savingsEvents);
+    }
+
+    @Override
+    public Map<Long, List<SavingsEvent>> executeRules(Collection<SavingsRule> savingsRules) {
+        Map<Long, List<SavingsRule>> rulesByUser = new LinkedHashMap<>();
+        Set<Long> savingsRuleIds = new HashSet<>();
+        for (SavingsRule savingsRule : savingsRules) {
+            if(savingsRule.getId() == null || savingsRule.getUserId() == null
+                    || savingsRule.getRuleType() == null || savingsRule.getAmount() == null) {
+                throw new IllegalArgumentException("Incomplete savings rule in batch: " + savingsRule);
+            }
+            if(!savingsRuleIds.add(savingsRule.getId())) {
+                throw new IllegalArgumentException("Duplicate savings rule id in batch: " + savingsRule.getId());
+            }
+            rulesByUser.computeIfAbsent(savingsRule.getUserId(), userId -> new ArrayList<>()).add(savingsRule);
+        }
+        // One task per user, so the rules of a user share one transaction fetch on one worker
+        List<CompletableFuture<List<List<SavingsEvent>>>> userTasks = new ArrayList<>(rulesByUser.size());
+        rulesByUser.forEach((userId, userRules) -> userTasks.add(
+                CompletableFuture.supplyAsync(() -> applyRules(userId, userRules, false), batchPool)));
+
+        Map<Long, List<SavingsEvent>> savingsEvents = new LinkedHashMap<>();
+        Iterator<List<SavingsRule>> userRules = rulesByUser.values().iterator();
+        for (CompletableFuture<List<List<SavingsEvent>>> userTask : userTasks) {
+            List<SavingsRule> rules = userRules.next();
+            List<List<SavingsEvent>> rulesEvents = join(userTask);
+            for (int i = 0; i < rules.size(); i++) {
+                savingsEvents.put(rules.get(i).getId(), rulesEvents.get(i));
+            }
+        }
+        return Collections.unmodifiableMap(savingsEvents);
+    }
+
+    @Override
+    public List<SavingsEvent> ingestTransactions(List<Transaction> transactions) {
+        Map<Long, List<Transaction>> transactionsByUser = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if(transaction.getId() == null || transaction.getUserId() == null || transaction.getAmount() == null) {
+                throw new IllegalArgumentException("Incomplete transaction: id=" + transaction.getId());
+            }
+            transactionsByUser.computeIfAbsent(transaction.getUserId(), userId -> new ArrayList<>()).add(transaction);
+        }
+        List<SavingsEvent> savingsEvents = new ArrayList<>();
+        transactionsByUser.forEach((userId, userTransactions) -> {
+            transactionsService.invalidate(userId);
+            List<SavingsRule> savingsRules = activeRulesForUser(userId);
+            // Pushed transactions may run ahead of transactions not pulled yet, so the watermarks stay
+            // where the pulls left them and the pushed transactions are recorded with the checkpoints
+            List<RuleExecution> ruleExecutions = ruleExecutions(savingsRules, false, false,
+                    Collections.nCopies(savingsRules.size(), savingsEvents::add));
+            if(!ruleExecutions.isEmpty()) {
+                applyRules(userId, ruleExecutions, userTransactions);
+                long[] transactionIds = userTransactions.stream().mapToLong(Transaction::getId).toArray();
+                for (RuleExecution ruleExecution : ruleExecutions) {
+                    ruleCheckpointStore.advance(RuleCheckpoint.ingested(ruleExecution.savingsRule.getId(), transactionIds));
+                }
+            }
+        });
+        return Collections.unmodifiableList(savingsEvents);
+    }
+
+    /**
+     * Applies all given rules of a user in one pass over the user's transactions
+     * @param replay when true the rules are applied to all transactions without storing the events,
+     *               otherwise only to the transactions after the checkpoint of each rule
+     * @return the savings events of each rule, in the same order as the rules
+     */
+    private List<List<SavingsEvent>> applyRules(Long userId, List<SavingsRule> savingsRules, boolean replay) {
+        List<List<SavingsEvent>> savingsEvents = new ArrayList<>(savingsRules.size());
+        List<Consumer<SavingsEvent>> savingsEventConsumers = new ArrayList<>(savingsRules.size());
+        for (int i = 0; i < savingsRules.size(); i++) {
+            List<SavingsEvent> ruleEvents = new ArrayList<>();
+            savingsEvents.add(Collections.unmodifiableList(ruleEvents));
+            savingsEventConsumers.add(ruleEvents::add);
+        }
+        applyRules(userId, savingsRules, replay, savingsEventConsumers);
+        return savingsEvents;
+    }
+
+    /**
+     * Applies all given rules of a user in one pass over the user's transactions, fetched a page at a time,
+     * handing each savings event to the consumer of its rule as soon as it is created
+     * @param replay when true the rules are applied to all transactions without storing the events,
+     *               otherwise only to the transactions after the checkpoint of each rule
+     * @param savingsEventConsumers the consumer of each rule, in the same order as the rules
+     */
+    private void applyRules(Long userId, List<SavingsRule> savingsRules, boolean replay,
+                            List<Consumer<SavingsEvent>> savingsEventConsumers) {
+        List<RuleExecution> ruleExecutions = ruleExecutions(savingsRules, replay, true, savingsEventConsumers);
+        if(!ruleExecutions.isEmpty()) {
+            applyRules(userId, ruleExecutions, fetchedPages(userId));
+        }
+    }
+
+    /**
+     * @return the pages of the user's transactions, each fetch timed apart from the evaluation
+     */
+    private LongFunction<TransactionPage> fetchedPages(Long userId) {
+        return cursor -> {
+            long started = System.nanoTime();
+            TransactionPage page = transactionsService.transactionsForUser(userId, cursor, transactionPageSize);
+            metrics.transactionsFetched(System.nanoTime() - started);
+            return page;
+        };
+    }
+
+    /**
+     * Fetches the first page without blocking the calling thread and applies the rule on the batch pool,
+     * which fetches the further pages
+     */
+    private CompletableFuture<List<SavingsEvent>> applyRuleAsync(SavingsRule savingsRule, boolean replay) {
+        List<SavingsEvent> savingsEvents = new ArrayList<>();
+        List<RuleExecution> ruleExecutions = ruleExecutions(Collections.singletonList(savingsRule), replay, true,
+                Collections.singletonList(savingsEvents::add));
+        if(ruleExecutions.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        Long userId = savingsRule.getUserId();
+        long started = System.nanoTime();
+        return asyncTransactionsService.transactionsForUserAsync(userId, TransactionPage.FIRST, transactionPageSize)
+                .thenApplyAsync(firstPage -> {
+                    metrics.transactionsFetched(System.nanoTime() - started);
+                    LongFunction<TransactionPage> pages = fetchedPages(userId);
+                    applyRules(userId, ruleExecutions, cursor -> cursor == TransactionPage.FIRST ? firstPage : pages.apply(cursor));
+                    return Collections.unmodifiableList(savingsEvents);
+                }, batchPool);
+    }
+
+    /**
+     * Prepares the active rules with goals for execution. A replay evaluates all transactions read-only,
+     * leaving the checkpoints, the store and the recorded emissions as they are. So does a rule without id,
+     * which has neither a checkpoint nor keys to record its emissions by.
+     * @param advancesCheckpoints whether the checkpoints of the rules move past the evaluated transactions
+     * @param savingsEventConsumers the consumer of each rule, in the same order as the rules
+     */
+    private List<RuleExecution> ruleExecutions(List<SavingsRule> savingsRules, boolean replay, boolean advancesCheckpoints,
+                                               List<Consumer<SavingsEvent>> savingsEventConsumers) {
+        List<RuleExecution> ruleExecutions = new ArrayList<>(savingsRules.size());
+        for (int i = 0; i < savingsRules.size(); i++) {
+            SavingsRule savingsRule = savingsRules.get(i);
+            RuleEvaluator ruleEvaluator = evaluatorFor(savingsRule);
+            if(ruleEvaluator == null) {
+                continue;
+            }
+            if(replay || savingsRule.getId() == null) {
+                ruleExecutions.add(new RuleExecution(ruleEvaluator, null, false,
+                        new Emitter(savingsEventConsumers.get(i), true)));
+            } else {
+                ruleExecutions.add(new RuleExecution(ruleEvaluator, checkpointFor(savingsRule), advancesCheckpoints,
+                        new Emitter(savingsEventConsumers.get(i), false)));
+            }
+        }
+        return ruleExecutions;
+    }
+
+    /**
+     * @return the evaluator of an active rule with goals, null if the rule is skipped
+     */
+    private RuleEvaluator evaluatorFor(SavingsRule savingsRule) {
+        if(!savingsRule.isActive() || savingsRule.getSavingsGoalIds().isEmpty()) {
+            log.debug("Savings rule inactive or without goals for savingsRule=[{}]", savingsRule);
+            metrics.ruleSkipped();
+            return null;
+        }
+        RuleEvaluator ruleEvaluator = ruleEvaluators.evaluatorFor(savingsRule);
+        if(ruleEvaluator == null) {
+            log.debug("No evaluator for the type of savingsRule=[{}]", savingsRule);
+            metrics.ruleSkipped();
+        }
+        return ruleEvaluator;
+    }
+
+    /**
+     * Applies prepared rules of a user in one pass over given transactions of the user, timed per rule type
+     */
+    private void applyRules(Long userId, List<RuleExecution> ruleExecutions, List<Transaction> transactions) {
+        applyRules(userId, ruleExecutions, cursor -> TransactionPage.of(transactions));
+    }
+
+    /**
+     * Applies prepared rules of a user in one pass over pages of the user's transactions, timed per rule type
+     * @param pages the page at a cursor
+     */
+    private void applyRules(Long userId, List<RuleExecution> ruleExecutions, LongFunction<TransactionPage> pages) {
+        try {
+            evaluateRules(userId, ruleExecutions, pages);
+        } finally {
+            for (RuleExecution ruleExecution : ruleExecutions) {
+                if(ruleExecution.savingsRule.getRuleType() != null) {
+                    metrics.ruleExecuted(ruleExecution.savingsRule.getRuleType(), ruleExecution.emitter.eventCount());
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the pages one after the other, so only one page is held in columns at a time.
+     * Checkpoints move once all pages are evaluated, as the pages need not be in id order.
+     * <p>
+     * The rules of each type go over a page in a loop of their own, in the order the types first appear,
+     * so each type is timed on its own when a pass mixes types, without reading the clock per transaction.
+     * The events of a rule stay in transaction order.
+     */
+    private void evaluateRules(Long userId, List<RuleExecution> ruleExecutions, LongFunction<TransactionPage> pages) {
+        long minCheckpoint = Long.MAX_VALUE;
+        Map<RuleType, RuleTypeExecutions> executionsByType = new LinkedHashMap<>();
+        for (RuleExecution ruleExecution : ruleExecutions) {
+            minCheckpoint = Math.min(minCheckpoint, ruleExecution.checkpoint);
+            executionsByType.computeIfAbsent(ruleExecution.savingsRule.getRuleType(), ruleType -> new RuleTypeExecutions())
+                    .ruleExecutions.add(ruleExecution);
+        }
+        long lastTransactionId = TransactionBatch.NO_ID;
+        int lastTransactionDate = TransactionBatch.NO_DATE;
+        long transactions = 0;
+        int scanned = 0;
+        int expenses = 0;
         Instant now = Instant.now();
-        transactions.stream()
-            .filter(transaction -> transaction.getAmount().signum() == -1) // Apply only to expense transactions
-            .forEach(transaction -> {
-                Set<Long> savingsGoalIds = savingsRule.getSavingsGoalIds();
-                if(roundup == savingsRule.getRuleType()) { // == is safe with enum
-                    BigDecimal roundUpAmount  = divideToGoalIds(roundup(transaction.getAmount(), savingsRule.getAmount()), savingsGoalIds.size());
-                    if(roundUpAmount.signum() == 1) {
-                        savingsGoalIds.forEach(goalId -> savingsEvents.add(
-                                new SavingsEvent(savingsRule.getUserId(), goalId, savingsRule, rule_application,
-                                        transaction.getDate(), roundUpAmount, transaction.getId(), now)
-                        ));
+        long cursor = TransactionPage.FIRST;
+        try {
+            do {
+                TransactionPage page = pages.apply(cursor);
+                cursor = page.getNextCursor();
+                if(page.getTransactions().isEmpty()) {
+                    continue;
+                }
+                transactions += page.getTransactions().size();
+                TransactionBatch batch = TransactionBatch.of(userId, page.getTransactions());
+                for (int i = 0; i < batch.size(); i++) {
+                    long transactionId = batch.id(i);
+                    if(transactionId != TransactionBatch.NO_ID) {
+                        lastTransactionId = Math.max(lastTransactionId, transactionId);
+                        if(transactionId <= minCheckpoint) { // Already processed by all rules
+                            continue;
+                        }
                     }
-                } else if (guiltypleasure == savingsRule.getRuleType()) {
-                    if(transaction.getDescription() == null) {
-                        log.warn("Transaction.Id={} of userId={} has null description.", transaction.getId(), savingsRule.getUserId());
-                    } else if (transaction.getDescription().equalsIgnoreCase(savingsRule.getPlaceDescription())) {
-                        BigDecimal roundUpAmount = divideToGoalIds(savingsRule.getAmount(), savingsGoalIds.size());
-                        savingsGoalIds.forEach(goalId -> savingsEvents.add(
-                                new SavingsEvent(savingsRule.getUserId(), goalId, savingsRule, rule_application,
-                                                 transaction.getDate(), roundUpAmount, transaction.getId(), now))
-                        );
+                    scanned++;
+                    lastTransactionDate = Math.max(lastTransactionDate, batch.epochDay(i));
+                    if(batch.isExpense(i)) {
+                        expenses++;
                     }
                 }
-            });
-        return Collections.unmodifiableList(savingsEvents);
+                EvaluationBatch evaluationBatch = new EvaluationBatch(batch, merchantNormalizer);
+                for (RuleTypeExecutions typeExecutions : executionsByType.values()) {
+                    typeExecutions.evaluate(batch, evaluationBatch, minCheckpoint, now);
+                }
+                // The events of the page are durable before the next page, and before the checkpoints move past them
+                savingsEventStore.sync();
+                for (RuleExecution ruleExecution : ruleExecutions) {
+                    ruleExecution.emitter.durable();
+                }
+            } while (cursor != TransactionPage.END);
+        } catch (RuntimeException | Error e) {
+            syncOrForget(ruleExecutions, e);
+            throw e;
+        } finally {
+            if(transactions > 0) {
+                executionsByType.forEach((ruleType, typeExecutions) -> metrics.evaluated(ruleType, typeExecutions.evaluationNanos));
+            }
+        }
+        if(transactions == 0) {
+            log.debug("No transactions for userId={}", userId);
+            return;
+        }
+        metrics.transactionsScanned(scanned, expenses);
+        if(lastTransactionId != TransactionBatch.NO_ID) {
+            advanceCheckpoints(ruleExecutions, lastTransactionId, dateOf(lastTransactionDate));
+        }
+    }
+
+    /**
+     * Makes the events appended by a failed pass durable, as they may already be published,
+     * or forgets their emission if the store cannot sync them
+     */
+    private void syncOrForget(List<RuleExecution> ruleExecutions, Throwable failure) {
+        try {
+            savingsEventStore.sync();
+            for (RuleExecution ruleExecution : ruleExecutions) {
+                ruleExecution.emitter.durable();
+            }
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+            for (RuleExecution ruleExecution : ruleExecutions) {
+                ruleExecution.emitter.forgetUndurable();
+            }
+        }
+    }
+
+    /**
+     * Waits for the task and rethrows its unchecked exceptions as they were thrown
+     */
+    private static <T> T join(CompletableFuture<T> task) {
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if(e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Long idOf(long transactionId) {
+        return transactionId == TransactionBatch.NO_ID ? null : transactionId;
+    }
+
+    private static LocalDate dateOf(int epochDay) {
+        return epochDay == TransactionBatch.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * @return the transactions already processed by the rule, null if none
+     */
+    private RuleCheckpoint checkpointFor(SavingsRule savingsRule) {
+        return savingsRule.getId() == null ? null : ruleCheckpointStore.checkpointFor(savingsRule.getId());
+    }
+
+    private void advanceCheckpoints(List<RuleExecution> ruleExecutions, Long lastTransactionId, LocalDate lastTransactionDate) {
+        for (RuleExecution ruleExecution : ruleExecutions) {
+            Long savingsRuleId = ruleExecution.savingsRule.getId();
+            if(savingsRuleId != null && ruleExecution.advancesCheckpoint) {
+                ruleCheckpointStore.advance(new RuleCheckpoint(savingsRuleId, lastTransactionId, lastTransactionDate));
+            }
+        }
     }
 
     static BigDecimal roundup(BigDecimal transactionAmount, BigDecimal ruleAmount) {
@@ -94,4 +511,227 @@ public class StandardSavingsRulesService implements SavingsRulesService {
                                   BigDecimal.ROUND_HALF_UP);
     }
 
+    /**
+     * Same as {@link #roundup(BigDecimal, BigDecimal)} with amounts in minor units
+     */
+    static long roundup(long transactionAmount, long ruleAmount) {
+        long trAmount = Math.abs(transactionAmount);
+        return -Math.floorDiv(-trAmount, ruleAmount) * ruleAmount - trAmount; // ceiling division
+    }
+
+    /**
+     * Same as {@link #divideToGoalIds(BigDecimal, int)} with amounts in minor units
+     */
+    static long divideToGoalIds(long amount, int numberOfGoalIds) {
+        if(numberOfGoalIds <= 1) return amount;
+        long quotient = amount / numberOfGoalIds;
+        long remainder = amount % numberOfGoalIds;
+        if(Math.abs(remainder) * 2 >= numberOfGoalIds) { // half up, away from zero
+            quotient += Long.signum(amount);
+        }
+        return quotient;
+    }
+
+    /**
+     * Stores the events of the first emission of their rule, transaction and goal and hands them to the consumer,
+     * already emitted events are dropped. A read-only emitter, of replays and date windows, hands on every event
+     * and leaves the store and the recorded emissions alone.
+     * <p>
+     * An emission stays recorded once the store made the event durable, and the event is then published.
+     * A failed append is forgotten at once, the appended events of a failed pass are forgotten unpublished
+     * if they cannot be synced, so a retry emits and publishes them once.
+     */
+    private final class Emitter implements Consumer<SavingsEvent> {
+
+        private final Consumer<SavingsEvent> savingsEventConsumer;
+        private final boolean readOnly;
+        private final List<SavingsEvent> undurableEvents = new ArrayList<>();
+        private int eventCount;
+
+        /**
+         * @param readOnly whether every event is handed to the consumer without storing it or recording its emission
+         */
+        Emitter(Consumer<SavingsEvent> savingsEventConsumer, boolean readOnly) {
+            this.savingsEventConsumer = savingsEventConsumer;
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public void accept(SavingsEvent savingsEvent) {
+            if(readOnly) {
+                eventCount++;
+                savingsEventConsumer.accept(savingsEvent);
+            } else if(savingsEventDeduplicator.firstEmission(savingsEvent)) {
+                SavingsEvent storedEvent;
+                try {
+                    storedEvent = savingsEventStore.append(savingsEvent);
+                } catch (RuntimeException e) {
+                    savingsEventDeduplicator.forget(savingsEvent);
+                    throw e;
+                }
+                undurableEvents.add(storedEvent);
+                eventCount++;
+                savingsEventConsumer.accept(storedEvent);
+            } else {
+                log.debug("Skipping already emitted savingsEvent=[{}]", savingsEvent);
+                metrics.duplicateSkipped();
+            }
+        }
+
+        /**
+         * @return the number of events handed to the consumer, skipped duplicates are not counted
+         */
+        int eventCount() {
+            return eventCount;
+        }
+
+        /**
+         * Called once the store synced the events emitted so far, publishes them
+         */
+        void durable() {
+            if(undurableEvents.isEmpty()) {
+                return;
+            }
+            // cleared first, a failing sink does not get the events of this call again
+            List<SavingsEvent> durableEvents = new ArrayList<>(undurableEvents);
+            undurableEvents.clear();
+            durableEvents.forEach(savingsEventStore::publish);
+        }
+
+        void forgetUndurable() {
+            undurableEvents.forEach(savingsEventDeduplicator::forget);
+            undurableEvents.clear();
+        }
+    }
+
+    /**
+     * The rule executions of one type in a pass, with the time spent evaluating them.
+     * Rules limited to one merchant are indexed by merchant id per batch, so a transaction goes
+     * to the rules of its merchant and the rules of any merchant only.
+     */
+    private final class RuleTypeExecutions {
+
+        private final List<RuleExecution> ruleExecutions = new ArrayList<>();
+        private final List<RuleExecution> anyMerchantExecutions = new ArrayList<>();
+        private long evaluationNanos;
+
+        /**
+         * Applies the rules to the expense transactions of the batch after their checkpoints
+         * @param minCheckpoint the lowest checkpoint of all rules of the pass
+         */
+        void evaluate(TransactionBatch batch, EvaluationBatch evaluationBatch, long minCheckpoint, Instant now) {
+            long started = System.nanoTime();
+            List<RuleExecution>[] executionsByMerchant = index(evaluationBatch);
+            for (int i = 0; i < batch.size(); i++) {
+                long transactionId = batch.id(i);
+                if(transactionId != TransactionBatch.NO_ID && transactionId <= minCheckpoint) { // Already processed by all rules
+                    continue;
+                }
+                if(!batch.isExpense(i)) { // Apply only to expense transactions
+                    continue;
+                }
+                evaluate(anyMerchantExecutions, batch, i, now);
+                if(executionsByMerchant != null) {
+                    int merchantId = evaluationBatch.merchantId(i);
+                    if(merchantId == EvaluationBatch.NO_MERCHANT) {
+                        log.warn("Transaction.Id={} of userId={} has null description.", idOf(transactionId), batch.getUserId());
+                    } else if(executionsByMerchant[merchantId] != null) {
+                        evaluate(executionsByMerchant[merchantId], batch, i, now);
+                    }
+                }
+            }
+            evaluationNanos += System.nanoTime() - started;
+        }
+
+        /**
+         * Binds the rules to the batch
+         * @return the rules limited to a merchant by merchant id, null if there are none
+         */
+        @SuppressWarnings("unchecked")
+        private List<RuleExecution>[] index(EvaluationBatch evaluationBatch) {
+            anyMerchantExecutions.clear();
+            List<RuleExecution>[] executionsByMerchant = null;
+            for (RuleExecution ruleExecution : ruleExecutions) {
+                ruleExecution.bind(evaluationBatch);
+                int merchantId = ruleExecution.ruleEvaluator.merchantIdIn(evaluationBatch);
+                if(merchantId == EvaluationBatch.ANY_MERCHANT) {
+                    anyMerchantExecutions.add(ruleExecution);
+                } else if(merchantId != EvaluationBatch.NO_MERCHANT) {
+                    if(executionsByMerchant == null) {
+                        executionsByMerchant = new List[evaluationBatch.merchantCount()];
+                    }
+                    if(executionsByMerchant[merchantId] == null) {
+                        executionsByMerchant[merchantId] = new ArrayList<>(1);
+                    }
+                    executionsByMerchant[merchantId].add(ruleExecution);
+                }
+            }
+            return executionsByMerchant;
+        }
+
+        private void evaluate(List<RuleExecution> executions, TransactionBatch batch, int index, Instant now) {
+            long transactionId = batch.id(index);
+            for (RuleExecution ruleExecution : executions) {
+                if(ruleExecution.isAfterCheckpoint(transactionId)) {
+                    ruleExecution.evaluate(batch, index, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * A savings rule prepared for execution, with its compiled evaluator and the emitter of its events
+     */
+    private static final class RuleExecution {
+
+        private final SavingsRule savingsRule;
+        private final RuleEvaluator ruleEvaluator;
+        private final long checkpoint;
+        private final RuleCheckpoint ruleCheckpoint;
+        private final boolean advancesCheckpoint;
+        private final Emitter emitter;
+        private RuleEvaluator.TransactionEvaluator transactionEvaluator;
+
+        /**
+         * @param ruleCheckpoint the transactions already processed by the rule, null to process all
+         * @param advancesCheckpoint whether the checkpoint of the rule moves past the evaluated transactions
+         */
+        RuleExecution(RuleEvaluator ruleEvaluator, RuleCheckpoint ruleCheckpoint, boolean advancesCheckpoint, Emitter emitter) {
+            this.savingsRule = ruleEvaluator.getSavingsRule();
+            this.ruleEvaluator = ruleEvaluator;
+            this.checkpoint = ruleCheckpoint == null ? Long.MIN_VALUE : ruleCheckpoint.getTransactionId();
+            this.ruleCheckpoint = ruleCheckpoint;
+            this.advancesCheckpoint = advancesCheckpoint;
+            this.emitter = emitter;
+        }
+
+        void bind(EvaluationBatch batch) {
+            transactionEvaluator = ruleEvaluator.bind(batch);
+        }
+
+        /**
+         * @param transactionId the transaction id, transactions without id ({@link TransactionBatch#NO_ID}) are always processed
+         * @return whether the transaction is after the checkpoint and was not pushed to the rule before
+         */
+        boolean isAfterCheckpoint(long transactionId) {
+            return transactionId == TransactionBatch.NO_ID || ruleCheckpoint == null || !ruleCheckpoint.isProcessed(transactionId);
+        }
+
+        /**
+         * Applies the rule to the expense transaction at index of the batch
+         */
+        void evaluate(TransactionBatch batch, int index, Instant now) {
+            BigDecimal amount = transactionEvaluator.amountPerGoal(index);
+            if(amount == null) {
+                return;
+            }
+            Long transactionId = idOf(batch.id(index));
+            LocalDate transactionDate = dateOf(batch.epochDay(index));
+            savingsRule.getSavingsGoalIds().forEach(goalId -> emitter.accept(
+                    new SavingsEvent(savingsRule.getUserId(), goalId, savingsRule, rule_application,
+                            transactionDate, amount, transactionId, now)
+            ));
+        }
+    }
+
 }
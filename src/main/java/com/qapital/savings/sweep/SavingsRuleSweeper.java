@@ -0,0 +1,182 @@
+package com.qapital.savings.sweep;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.qapital.concurrent.TaskExecutors;
+import com.qapital.savings.rule.SavingsRuleRepository;
+import com.qapital.savings.rule.SavingsRulesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the active rules of all users, on workers created by {@link TaskExecutors}.
+ * At most {@code maxInFlightUsers} users are submitted and not yet done, so when the bank or the
+ * event sinks slow down, the sweep slows down with them instead of queueing all users.
+ * Users are swept in ascending id order and the progress is saved, so a restarted sweep continues
+ * after the last user swept without gaps. A user may then be executed twice, which the event
+ * deduplication absorbs.
+ */
+public class SavingsRuleSweeper {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final SavingsRuleRepository savingsRuleRepository;
+    private final SavingsRulesService savingsRulesService;
+    private final SweepProgress sweepProgress;
+    private final ExecutorService workers;
+    private final int maxInFlightUsers;
+    private final long progressIntervalNanos;
+    private final Timer sweepTimer;
+    private final Counter sweptUsers;
+    private final Counter failedUsers;
+    private volatile boolean stopped;
+
+    /**
+     * @param workers the number of users executed concurrently on platform threads
+     * @param maxInFlightUsers the number of users submitted to the workers and not yet done at most,
+     *                         which bounds the users executed concurrently on virtual threads
+     * @param progressIntervalMillis how often the progress is saved during a sweep
+     */
+    public SavingsRuleSweeper(SavingsRuleRepository savingsRuleRepository,
+                              SavingsRulesService savingsRulesService,
+                              SweepProgress sweepProgress,
+                              TaskExecutors taskExecutors,
+                              int workers,
+                              int maxInFlightUsers,
+                              long progressIntervalMillis,
+                              MetricRegistry metricRegistry) {
+        if(maxInFlightUsers < workers) {
+            throw new IllegalArgumentException("maxInFlightUsers=" + maxInFlightUsers + " is less than workers=" + workers);
+        }
+        this.savingsRuleRepository = savingsRuleRepository;
+        this.savingsRulesService = savingsRulesService;
+        this.sweepProgress = sweepProgress;
+        this.workers = taskExecutors.newExecutor("sweep", workers);
+        this.maxInFlightUsers = maxInFlightUsers;
+        this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis);
+        this.sweepTimer = metricRegistry.timer(MetricRegistry.name("savings.sweep", "duration"));
+        this.sweptUsers = metricRegistry.counter(MetricRegistry.name("savings.sweep", "users"));
+        this.failedUsers = metricRegistry.counter(MetricRegistry.name("savings.sweep", "failures"));
+    }
+
+    /**
+     * Sweeps all users after the saved progress. Returns early, with the progress saved, when stopped.
+     * @return the number of users swept
+     */
+    @Scheduled(fixedDelayString = "${savings.sweep.fixed-delay-ms:3600000}",
+            initialDelayString = "${savings.sweep.initial-delay-ms:60000}")
+    public int sweep() throws InterruptedException {
+        long[] userIds = savingsRuleRepository.userIds();
+        long lastSweptUserId = sweepProgress.lastSweptUserId();
+        int first = lastSweptUserId == SweepProgress.NONE ? 0 : firstAfter(userIds, lastSweptUserId);
+        if(first > 0) {
+            log.info("Resuming sweep after userId={}, {} of {} users left", lastSweptUserId, userIds.length - first, userIds.length);
+        }
+
+        Watermark watermark = new Watermark(userIds, first);
+        Semaphore inFlight = new Semaphore(maxInFlightUsers);
+        long nextProgressNanos = System.nanoTime() + progressIntervalNanos;
+        int submitted = 0;
+        try (Timer.Context ignored = sweepTimer.time()) {
+            for (int i = first; i < userIds.length && !stopped; i++) {
+                inFlight.acquire();
+                int index = i;
+                try {
+                    workers.execute(() -> {
+                        try {
+                            sweepUser(userIds[index]);
+                        } finally {
+                            watermark.done(index);
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // shut down between the check and the submit
+                    inFlight.release();
+                    break;
+                }
+                submitted++;
+                if(System.nanoTime() - nextProgressNanos >= 0) {
+                    saveProgress(watermark);
+                    nextProgressNanos = System.nanoTime() + progressIntervalNanos;
+                }
+            }
+            inFlight.acquire(maxInFlightUsers);
+        }
+
+        if(stopped) {
+            saveProgress(watermark);
+            log.info("Sweep stopped after {} users", submitted);
+        } else {
+            sweepProgress.clear();
+            log.info("Swept {} users", submitted);
+        }
+        return submitted;
+    }
+
+    private void sweepUser(long userId) {
+        try {
+            savingsRulesService.executeActiveRules(userId);
+            sweptUsers.inc();
+        } catch (RuntimeException e) {
+            failedUsers.inc();
+            log.warn("Sweep failed for userId={}", userId, e);
+        }
+    }
+
+    private void saveProgress(Watermark watermark) {
+        long lastSweptUserId = watermark.lastSweptUserId();
+        if(lastSweptUserId != SweepProgress.NONE) {
+            sweepProgress.save(lastSweptUserId);
+        }
+    }
+
+    private static int firstAfter(long[] userIds, long userId) {
+        int index = Arrays.binarySearch(userIds, userId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Stops the running sweep after the users in flight and stops the workers
+     */
+    public void shutdown() {
+        stopped = true;
+        workers.shutdown();
+    }
+
+    /**
+     * The users done without gaps, workers finish out of order
+     */
+    private static final class Watermark {
+
+        private final long[] userIds;
+        private final boolean[] done;
+        private int next;
+
+        Watermark(long[] userIds, int first) {
+            this.userIds = userIds;
+            this.done = new boolean[userIds.length];
+            this.next = first;
+        }
+
+        synchronized void done(int index) {
+            done[index] = true;
+            while (next < done.length && done[next]) {
+                next++;
+            }
+        }
+
+        synchronized long lastSweptUserId() {
+            return next == 0 ? SweepProgress.NONE : userIds[next - 1];
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.qapital.savings.sweep;
+
+import com.codahale.metrics.MetricRegistry;
+import com.qapital.concurrent.TaskExecutors;
+import com.qapital.savings.rule.SavingsRuleRepository;
+import com.qapital.savings.rule.SavingsRulesService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Paths;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "savings.sweep.enabled", havingValue = "true")
+public class SweepConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public SavingsRuleSweeper savingsRuleSweeper(
+            SavingsRuleRepository savingsRuleRepository,
+            SavingsRulesService savingsRulesService,
+            MetricRegistry metricRegistry,
+            TaskExecutors taskExecutors,
+            @Value("${savings.sweep.progress-file:data/sweep/progress}") String progressFile,
+            @Value("${savings.sweep.workers:16}") int workers,
+            @Value("${savings.sweep.max-in-flight-users:64}") int maxInFlightUsers,
+            @Value("${savings.sweep.progress-interval-ms:5000}") long progressIntervalMillis) {
+        return new SavingsRuleSweeper(savingsRuleRepository, savingsRulesService, new SweepProgress(Paths.get(progressFile)),
+                taskExecutors, workers, maxInFlightUsers, progressIntervalMillis, metricRegistry);
+    }
+
+}
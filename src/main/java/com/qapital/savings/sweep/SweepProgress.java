@@ -0,0 +1,67 @@
+package com.qapital.savings.sweep;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Progress of a sweep, the highest user id such that all users up to it are swept.
+ * Kept in a file that is replaced atomically, so a crash leaves either the old or the new progress.
+ */
+public class SweepProgress {
+
+    /**
+     * No user swept yet
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private final Path file;
+
+    /**
+     * @param file the file with the progress, created when the progress is first saved
+     */
+    public SweepProgress(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the highest user id swept without gaps, {@link #NONE} if no sweep is in progress
+     */
+    public long lastSweptUserId() {
+        try {
+            if(!Files.exists(file)) {
+                return NONE;
+            }
+            return Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sweep progress from " + file, e);
+        }
+    }
+
+    public void save(long lastSweptUserId) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(tempFile, Long.toString(lastSweptUserId).getBytes(StandardCharsets.US_ASCII));
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save sweep progress to " + file, e);
+        }
+    }
+
+    /**
+     * Forgets the progress, the next sweep starts from the first user
+     */
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clear sweep progress in " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.qapital.bankdata.transaction;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingTransactionsServiceTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private TransactionsService transactionsService;
+
+    private CachingTransactionsService cachingTransactionsService;
+
+    private final List<Transaction> transactions = Collections.singletonList(
+            new Transaction(1L, 100L, new BigDecimal("-5.34"), "Starbucks", LocalDate.of(2015, 7, 1)));
+
+    @Before
+    public void setUp() throws Exception {
+        cachingTransactionsService = new CachingTransactionsService(transactionsService, 1000, Duration.ofMinutes(5));
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(transactions);
+    }
+
+    @Test
+    public void shouldServeRepeatedRequestsFromCache() throws Exception {
+        assertEquals(transactions, cachingTransactionsService.latestTransactionsForUser(100L));
+        assertEquals(transactions, cachingTransactionsService.latestTransactionsForUser(100L));
+
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(100L));
+        assertEquals(1, cachingTransactionsService.stats().hitCount());
+        assertEquals(1, cachingTransactionsService.stats().missCount());
+    }
+
+    @Test
+    public void shouldLoadAgainAfterInvalidation() throws Exception {
+        cachingTransactionsService.latestTransactionsForUser(100L);
+        cachingTransactionsService.invalidate(100L);
+        cachingTransactionsService.latestTransactionsForUser(100L);
+
+        verify(transactionsService, times(2)).latestTransactionsForUser(eq(100L));
+    }
+
+    @Test
+    public void shouldServeDateRangesFromTheCachedHistory() throws Exception {
+        assertEquals(transactions, cachingTransactionsService.transactionsForUserBetween(100L, LocalDate.of(2015, 7, 1), LocalDate.of(2015, 7, 1)));
+        assertTrue(cachingTransactionsService.transactionsForUserBetween(100L, LocalDate.of(2015, 7, 2), LocalDate.of(2015, 7, 31)).isEmpty());
+
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(100L));
+    }
+
+    @Test
+    public void shouldCacheHistoriesOfASinglePage() throws Exception {
+        when(transactionsService.transactionsForUser(eq(100L), anyLong(), anyInt())).thenCallRealMethod();
+
+        TransactionPage page = cachingTransactionsService.transactionsForUser(100L, TransactionPage.FIRST, 10);
+        assertEquals(transactions, page.getTransactions());
+        assertTrue(page.isLast());
+        assertEquals(transactions, cachingTransactionsService.latestTransactionsForUser(100L));
+
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(100L));
+    }
+
+    @Test
+    public void shouldPageLongHistoriesFromTheDelegate() throws Exception {
+        List<Transaction> history = Arrays.asList(
+                new Transaction(1L, 200L, new BigDecimal("-5.34"), "Starbucks", LocalDate.of(2015, 7, 1)),
+                new Transaction(2L, 200L, new BigDecimal("-2.16"), "Starbucks", LocalDate.of(2015, 7, 2)),
+                new Transaction(3L, 200L, new BigDecimal("-3.09"), "McDonald's", LocalDate.of(2015, 7, 2)));
+        when(transactionsService.transactionsForUser(eq(200L), anyLong(), anyInt())).thenAnswer(invocation ->
+                TransactionPage.of(history, invocation.getArgument(1), invocation.getArgument(2)));
+
+        TransactionPage first = cachingTransactionsService.transactionsForUser(200L, TransactionPage.FIRST, 2);
+        TransactionPage second = cachingTransactionsService.transactionsForUser(200L, first.getNextCursor(), 2);
+        cachingTransactionsService.transactionsForUser(200L, TransactionPage.FIRST, 2);
+
+        assertEquals(history.subList(0, 2), first.getTransactions());
+        assertEquals(history.subList(2, 3), second.getTransactions());
+        assertTrue(second.isLast());
+        // the history is neither fetched as a whole nor cached
+        verify(transactionsService, times(3)).transactionsForUser(eq(200L), anyLong(), eq(2));
+        verify(transactionsService, never()).latestTransactionsForUser(eq(200L));
+    }
+
+    @Test
+    public void shouldPageCachedHistoriesFromTheCache() throws Exception {
+        cachingTransactionsService.latestTransactionsForUser(100L);
+
+        TransactionPage page = cachingTransactionsService.transactionsForUser(100L, TransactionPage.FIRST, 10);
+
+        assertEquals(transactions, page.getTransactions());
+        verify(transactionsService, never()).transactionsForUser(eq(100L), anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldLetConcurrentCallersWaitForOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionsService.latestTransactionsForUser(eq(300L))).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return transactions;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Transaction>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cachingTransactionsService.latestTransactionsForUser(300L)));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cachingTransactionsService.latestTransactionsForUser(300L)));
+            }
+            // other users are served while the load is in progress
+            assertEquals(transactions, cachingTransactionsService.latestTransactionsForUser(100L));
+            release.countDown();
+            for (Future<List<Transaction>> result : results) {
+                assertEquals(transactions, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(300L));
+    }
+
+    @Test
+    public void shouldLoadAgainAfterAFailedLoad() throws Exception {
+        when(transactionsService.latestTransactionsForUser(eq(200L)))
+                .thenThrow(new IllegalStateException("Bank unavailable"))
+                .thenReturn(transactions);
+        try {
+            cachingTransactionsService.latestTransactionsForUser(200L);
+            fail("Expected the failure of the bank");
+        } catch (IllegalStateException expected) {
+            // not cached
+        }
+        assertEquals(transactions, cachingTransactionsService.latestTransactionsForUser(200L));
+    }
+
+    @Test
+    public void shouldNotCacheMissingTransactions() throws Exception {
+        when(transactionsService.latestTransactionsForUser(eq(200L))).thenReturn(null);
+        assertNull(cachingTransactionsService.latestTransactionsForUser(200L));
+        assertNull(cachingTransactionsService.latestTransactionsForUser(200L));
+
+        verify(transactionsService, times(2)).latestTransactionsForUser(eq(200L));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.qapital.bankdata.transaction;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticTransactionsServiceTest {
+
+    private SyntheticTransactionsService service(long seed, int minTransactions, int maxTransactions) {
+        return new SyntheticTransactionsService(seed, minTransactions, maxTransactions, "Starbucks:3,Amazon:1",
+                0.1, "Salary", new BigDecimal("1945.00"), new BigDecimal("150.00"), 30, "2017-10-31");
+    }
+
+    @Test
+    public void shouldGenerateTheSameHistoriesForTheSameSeed() throws Exception {
+        List<Transaction> history = service(42L, 100, 1000).latestTransactionsForUser(7L);
+
+        assertEquals(new ArrayList<>(history), new ArrayList<>(service(42L, 100, 1000).latestTransactionsForUser(7L)));
+        assertEquals(history.get(50), history.get(50));
+        assertNotEquals(new ArrayList<>(history), new ArrayList<>(service(43L, 100, 1000).latestTransactionsForUser(7L)));
+        assertNotEquals(new ArrayList<>(history), new ArrayList<>(service(42L, 100, 1000).latestTransactionsForUser(8L)));
+    }
+
+    @Test
+    public void shouldSpreadHistoriesOverTheDays() throws Exception {
+        SyntheticTransactionsService service = service(42L, 2_000_000, 2_000_000);
+        List<Transaction> history = service.latestTransactionsForUser(7L);
+
+        assertEquals(2_000_000, history.size());
+        assertEquals(1L, history.get(0).getId().longValue());
+        assertEquals(LocalDate.of(2017, 10, 2), history.get(0).getDate());
+        assertEquals(2_000_000L, history.get(history.size() - 1).getId().longValue());
+        assertEquals(LocalDate.of(2017, 10, 31), history.get(history.size() - 1).getDate());
+        for (int i = 1; i < 10_000; i++) {
+            assertFalse(history.get(i).getDate().isBefore(history.get(i - 1).getDate()));
+        }
+    }
+
+    @Test
+    public void shouldFollowTheIncomeShareAndMerchantWeights() throws Exception {
+        List<Transaction> history = service(42L, 100_000, 100_000).latestTransactionsForUser(7L);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (Transaction transaction : history) {
+            counts.merge(transaction.getDescription(), 1, Integer::sum);
+            if("Salary".equals(transaction.getDescription())) {
+                assertEquals(new BigDecimal("1945.00"), transaction.getAmount());
+            } else {
+                assertTrue(transaction.getAmount().signum() < 0);
+                assertTrue(transaction.getAmount().compareTo(new BigDecimal("-150.00")) >= 0);
+            }
+        }
+        assertEquals(10_000, counts.get("Salary"), 500);
+        assertEquals(3.0, (double) counts.get("Starbucks") / counts.get("Amazon"), 0.1);
+    }
+
+    @Test
+    public void shouldGenerateOnlyTheRequestedPage() throws Exception {
+        SyntheticTransactionsService service = service(42L, 1_000_000, 1_000_000);
+        List<Transaction> history = service.latestTransactionsForUser(7L);
+
+        TransactionPage page = service.transactionsForUser(7L, 500_000, 1000);
+        TransactionPage last = service.transactionsForUser(7L, 999_500, 1000);
+
+        assertEquals(history.subList(500_000, 501_000), page.getTransactions());
+        assertEquals(501_000, page.getNextCursor());
+        assertEquals(history.subList(999_500, 1_000_000), last.getTransactions());
+        assertTrue(last.isLast());
+        assertTrue(service.transactionsForUser(7L, 1_000_000, 1000).getTransactions().isEmpty());
+    }
+
+    @Test
+    public void shouldVaryHistorySizesBetweenUsers() throws Exception {
+        SyntheticTransactionsService service = service(42L, 1, 1000);
+        int smallest = Integer.MAX_VALUE;
+        int largest = 0;
+        for (long userId = 1; userId <= 1000; userId++) {
+            int size = service.latestTransactionsForUser(userId).size();
+            smallest = Math.min(smallest, size);
+            largest = Math.max(largest, size);
+        }
+        assertTrue(smallest >= 1 && smallest < 50);
+        assertTrue(largest <= 1000 && largest > 950);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.qapital.bankdata.transaction;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionBatchTest {
+
+    private final List<Transaction> transactions = Arrays.asList(
+            new Transaction(1L, 100L, new BigDecimal("-5.34"), "Starbucks", LocalDate.of(2015, 7, 1)),
+            new Transaction(2L, 100L, new BigDecimal("2000"), "Salary", LocalDate.of(2015, 7, 2)),
+            new Transaction(null, 100L, new BigDecimal("-0.125"), null, null),
+            new Transaction(4L, 100L, new BigDecimal("-3.5"), "Starbucks", LocalDate.of(2015, 7, 3)));
+
+    @Test
+    public void shouldRoundTripTransactions() throws Exception {
+        TransactionBatch batch = TransactionBatch.of(100L, transactions);
+
+        assertEquals(4, batch.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals(transactions.get(i), batch.transaction(i));
+            assertEquals(transactions.get(i).getAmount().scale(), batch.amountScale(i));
+        }
+    }
+
+    @Test
+    public void shouldStorePrimitiveColumns() throws Exception {
+        TransactionBatch batch = TransactionBatch.of(100L, transactions);
+
+        assertEquals(1L, batch.id(0));
+        assertEquals(TransactionBatch.NO_ID, batch.id(2));
+        assertEquals(-534L, batch.amount(0));
+        assertEquals(-350L, batch.amount(3));
+        assertEquals(MinorUnits.NOT_REPRESENTABLE, batch.amount(2));
+        assertEquals(LocalDate.of(2015, 7, 1).toEpochDay(), batch.epochDay(0));
+        assertEquals(TransactionBatch.NO_DATE, batch.epochDay(2));
+
+        assertTrue(batch.isExpense(0));
+        assertFalse(batch.isExpense(1));
+        assertTrue(batch.isExpense(2));
+    }
+
+    @Test
+    public void shouldEncodeEachDistinctDescriptionOnce() throws Exception {
+        TransactionBatch batch = TransactionBatch.of(100L, transactions);
+
+        assertEquals(2, batch.dictionarySize());
+        assertEquals(batch.descriptionId(0), batch.descriptionId(3));
+        assertEquals(TransactionBatch.NO_DESCRIPTION, batch.descriptionId(2));
+        assertEquals("Starbucks", batch.dictionaryDescription(batch.descriptionId(0)));
+        assertEquals("Salary", batch.dictionaryDescription(batch.descriptionId(1)));
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.qapital.bankdata.transaction;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionHistoryTest {
+
+    private final Transaction lunch = new Transaction(1L, 100L, new BigDecimal("-5.34"), "Lunch", LocalDate.of(2015, 7, 3));
+    private final Transaction salary = new Transaction(2L, 100L, new BigDecimal("2000"), "Salary", LocalDate.of(2015, 7, 1));
+    private final Transaction undated = new Transaction(3L, 100L, new BigDecimal("-0.125"), null, null);
+    private final Transaction coffee = new Transaction(4L, 100L, new BigDecimal("-3.5"), "Starbucks", LocalDate.of(2015, 7, 3));
+    private final Transaction candy = new Transaction(5L, 100L, new BigDecimal("-1.10"), "Candy", LocalDate.of(2015, 7, 9));
+
+    private final List<Transaction> transactions = Arrays.asList(lunch, salary, undated, coffee, candy);
+
+    @Test
+    public void shouldKeepTheGivenOrder() throws Exception {
+        TransactionHistory history = TransactionHistory.of(transactions);
+
+        assertEquals(transactions, history.transactions());
+        assertEquals(5, history.size());
+    }
+
+    @Test
+    public void shouldFindTransactionsBetweenDatesInclusive() throws Exception {
+        TransactionHistory history = TransactionHistory.of(transactions);
+
+        assertEquals(Arrays.asList(salary, lunch, coffee, candy), history.between(LocalDate.MIN.plusDays(1), LocalDate.of(2016, 1, 1)));
+        assertEquals(Arrays.asList(lunch, coffee), history.between(LocalDate.of(2015, 7, 3), LocalDate.of(2015, 7, 3)));
+        assertEquals(Arrays.asList(lunch, coffee, candy), history.between(LocalDate.of(2015, 7, 2), LocalDate.of(2015, 7, 9)));
+        assertTrue(history.between(LocalDate.of(2015, 7, 4), LocalDate.of(2015, 7, 8)).isEmpty());
+        assertTrue(history.between(LocalDate.of(2015, 7, 10), LocalDate.of(2015, 7, 1)).isEmpty());
+        assertTrue(TransactionHistory.of(Collections.emptyList()).between(LocalDate.of(2015, 7, 1), LocalDate.of(2015, 7, 31)).isEmpty());
+    }
+
+}
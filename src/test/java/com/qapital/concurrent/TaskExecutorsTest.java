@@ -0,0 +1,53 @@
+package com.qapital.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskExecutorsTest {
+
+    @Test
+    public void shouldRunOnNamedDaemonPlatformThreads() throws Exception {
+        ExecutorService executor = new PlatformTaskExecutors().newExecutor("test", 2);
+        try {
+            assertEquals("test-1", executor.submit(() -> Thread.currentThread().getName()).get());
+            assertTrue(executor.submit(() -> Thread.currentThread().isDaemon()).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRunOnVirtualThreadsWhenSupported() throws Exception {
+        if(!VirtualTaskExecutors.isSupported()) {
+            try {
+                new VirtualTaskExecutors();
+                fail("Virtual threads without JDK 21");
+            } catch (IllegalStateException expected) {
+            }
+            return;
+        }
+        ExecutorService executor = new VirtualTaskExecutors().newExecutor("test", 2);
+        try {
+            assertEquals("test-1", executor.submit(() -> Thread.currentThread().getName()).get());
+            // a thread per task, the platform thread count does not bound the tasks
+            assertEquals("test-2", executor.submit(() -> Thread.currentThread().getName()).get());
+            assertEquals(Boolean.TRUE, executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFallBackToPlatformThreads() throws Exception {
+        TaskExecutorsConfiguration configuration = new TaskExecutorsConfiguration();
+        assertTrue(configuration.taskExecutors(TaskExecutorsConfiguration.Threads.platform) instanceof PlatformTaskExecutors);
+        TaskExecutors taskExecutors = configuration.taskExecutors(TaskExecutorsConfiguration.Threads.virtual);
+        assertEquals(VirtualTaskExecutors.isSupported(), taskExecutors instanceof VirtualTaskExecutors);
+    }
+
+}
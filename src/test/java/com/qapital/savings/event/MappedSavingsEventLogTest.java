@@ -0,0 +1,103 @@
+package com.qapital.savings.event;
+
+import com.qapital.savings.rule.SavingsRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSavingsEventLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SavingsRule roundupRule = SavingsRule.createRoundupRule(2L, 100L, new BigDecimal("2.00"), 11L);
+
+    private SavingsEvent event(long triggerId, String amount) {
+        return new SavingsEvent(100L, 11L, roundupRule, SavingsEvent.EventName.rule_application,
+                LocalDate.of(2017, 10, 30), new BigDecimal(amount), triggerId, Instant.ofEpochSecond(1509395414L, 123456789));
+    }
+
+    @Test
+    public void shouldAssignIncreasingIdsAndReplayAfterReopening() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        List<SavingsEvent> appended = new ArrayList<>();
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024 * 1024)) {
+            appended.add(eventLog.append(event(1L, "0.45")));
+            appended.add(eventLog.append(event(2L, "123456789012345678901234567890.5")));
+            appended.add(eventLog.append(event(3L, "1.5").cancelled(true).withSavingsTransferId(7L)));
+            eventLog.sync();
+        }
+        assertEquals(Arrays.asList(1L, 2L, 3L), Arrays.asList(appended.get(0).getId(), appended.get(1).getId(), appended.get(2).getId()));
+
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024 * 1024)) {
+            List<SavingsEvent> replayed = new ArrayList<>();
+            eventLog.replay(replayed::add);
+            assertEquals(appended, replayed);
+            assertEquals(appended.get(0).getCreated(), replayed.get(0).getCreated());
+            assertEquals(4L, eventLog.append(event(4L, "0.10")).getId().longValue());
+        }
+    }
+
+    @Test
+    public void shouldRollSegments() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        List<SavingsEvent> appended = new ArrayList<>();
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024)) {
+            for (long triggerId = 1; triggerId <= 100; triggerId++) {
+                appended.add(eventLog.append(event(triggerId, "0.45")));
+            }
+            eventLog.sync();
+            List<SavingsEvent> replayed = new ArrayList<>();
+            eventLog.replay(replayed::add);
+            assertEquals(appended, replayed);
+        }
+        assertTrue(folder.getRoot().list().length > 1);
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024)) {
+            assertEquals(101L, eventLog.nextId());
+            List<SavingsEvent> replayed = new ArrayList<>();
+            eventLog.replay(replayed::add);
+            assertEquals(appended, replayed);
+        }
+    }
+
+    @Test
+    public void shouldDiscardTornRecordAtTheEnd() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024 * 1024)) {
+            eventLog.append(event(1L, "0.45"));
+            eventLog.append(event(2L, "0.55"));
+        }
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            int firstRecordSize = 8 + file.readInt();
+            file.seek(firstRecordSize + 8 + 20); // inside the payload of the second record
+            file.writeByte(42);
+        }
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024 * 1024)) {
+            List<SavingsEvent> replayed = new ArrayList<>();
+            eventLog.replay(replayed::add);
+            assertEquals(1, replayed.size());
+            assertEquals(2L, eventLog.append(event(3L, "0.65")).getId().longValue());
+        }
+        try (MappedSavingsEventLog eventLog = new MappedSavingsEventLog(directory, 1024 * 1024)) {
+            List<SavingsEvent> replayed = new ArrayList<>();
+            eventLog.replay(replayed::add);
+            assertEquals(Arrays.asList(1L, 2L), Arrays.asList(replayed.get(0).getId(), replayed.get(1).getId()));
+            assertEquals(3L, replayed.get(1).getTriggerId().longValue());
+        }
+    }
+
+}
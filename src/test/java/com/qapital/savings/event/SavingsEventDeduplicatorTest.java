@@ -0,0 +1,111 @@
+package com.qapital.savings.event;
+
+import com.qapital.savings.rule.SavingsRule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SavingsEventDeduplicatorTest {
+
+    private SavingsEvent event(Long savingsRuleId, Long savingsGoalId, Long triggerId) {
+        return new SavingsEvent(100L, savingsGoalId,
+                SavingsRule.createRoundupRule(savingsRuleId, 100L, new BigDecimal("2.00")),
+                SavingsEvent.EventName.rule_application, LocalDate.of(2017, 10, 30), new BigDecimal("0.45"), triggerId);
+    }
+
+    @Test
+    public void shouldDetectEmittedKeys() throws Exception {
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(1000, 0.01);
+
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, 111L)));
+        assertFalse(deduplicator.firstEmission(event(1L, 11L, 111L)));
+        assertTrue(deduplicator.firstEmission(event(1L, 22L, 111L)));
+        assertTrue(deduplicator.firstEmission(event(2L, 11L, 111L)));
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, 112L)));
+        assertEquals(4, deduplicator.size());
+    }
+
+    @Test
+    public void shouldNeverDeduplicateIncompleteKeys() throws Exception {
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(1000, 0.01);
+
+        assertTrue(deduplicator.firstEmission(event(null, 11L, 111L)));
+        assertTrue(deduplicator.firstEmission(event(null, 11L, 111L)));
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, null)));
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, null)));
+        assertEquals(0, deduplicator.size());
+    }
+
+    @Test
+    public void shouldStayExactBeyondExpectedKeys() throws Exception {
+        // a saturated bloom filter answers "maybe" for everything, the exact set must still tell new keys apart
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(10, 0.1, 1_000_000);
+        for (long triggerId = 1; triggerId <= 100_000; triggerId++) {
+            assertTrue(deduplicator.firstEmission(event(1L, 11L, triggerId)));
+        }
+        for (long triggerId = 1; triggerId <= 100_000; triggerId++) {
+            assertFalse(deduplicator.firstEmission(event(1L, 11L, triggerId)));
+        }
+        assertEquals(100_000, deduplicator.size());
+    }
+
+    @Test
+    public void shouldKeepOnlyTheLatestKeysExactly() throws Exception {
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(10, 0.1, 1280);
+        for (long triggerId = 1; triggerId <= 100_000; triggerId++) {
+            assertTrue(deduplicator.firstEmission(event(1L, 11L, triggerId)));
+        }
+        assertTrue(deduplicator.size() <= 1280);
+        assertFalse(deduplicator.firstEmission(event(1L, 11L, 100_000L)));
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, 1L))); // dropped with its generation
+    }
+
+    @Test
+    public void shouldEmitForgottenKeysAgain() throws Exception {
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(1000, 0.01);
+
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, 111L)));
+        deduplicator.forget(event(1L, 11L, 111L));
+        assertEquals(0, deduplicator.size());
+        assertTrue(deduplicator.firstEmission(event(1L, 11L, 111L)));
+        assertFalse(deduplicator.firstEmission(event(1L, 11L, 111L)));
+    }
+
+    @Test
+    public void shouldLetOneOfConcurrentEmissionsThrough() throws Exception {
+        SavingsEventDeduplicator deduplicator = new SavingsEventDeduplicator(10_000, 0.01, 1_000_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> firstEmissions = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                firstEmissions.add(executor.submit(() -> {
+                    int count = 0;
+                    for (long triggerId = 1; triggerId <= 10_000; triggerId++) {
+                        if(deduplicator.firstEmission(event(1L, 11L, triggerId))) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> count : firstEmissions) {
+                total += count.get();
+            }
+            assertEquals(10_000, total);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
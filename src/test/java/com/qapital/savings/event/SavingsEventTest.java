@@ -1,14 +1,19 @@
 package com.qapital.savings.event;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.qapital.savings.CustomizedJacksonMapper;
+import com.qapital.savings.SavingsJacksonModule;
 import com.qapital.savings.rule.SavingsRule;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -46,6 +51,22 @@ public class SavingsEventTest {
         assertEquals(jsonStr, mapper.writerWithDefaultPrettyPrinter().writeValueAsString(savingsEvent));
     }
 
+    @Test
+    public void shouldSerializeWithoutReflectionLikeTheBeanSerializer() throws Exception {
+        ObjectMapper fastMapper = mapper.copy().registerModule(new SavingsJacksonModule());
+        SavingsRule savingsRule = SavingsRule.createGuiltyPleasureRule(4L, 1L, "Dorsia", BigDecimal.ONE);
+        List<SavingsEvent> savingsEvents = Arrays.asList(savingsEvent, savingsEvent.cancelled(true),
+                new SavingsEvent(1L, 2L, savingsRule, SavingsEvent.EventName.rule_application,
+                        null, new BigDecimal("1E+3"), null, Instant.ofEpochSecond(1509395414L, 123456789)),
+                new SavingsEvent(1L, 2L, savingsRule, SavingsEvent.EventName.rule_application,
+                        LocalDate.of(2017, 10, 31), new BigDecimal("0.66"), 124L, Instant.ofEpochSecond(1509395414L, 123456789)));
+
+        assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(savingsEvents),
+                fastMapper.writerWithDefaultPrettyPrinter().writeValueAsString(savingsEvents));
+        assertEquals(mapper.writer().with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(savingsEvents),
+                fastMapper.writer().with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(savingsEvents));
+    }
+
     @Test
     public void shouldDeserialize() throws Exception {
         String jsonStr = "{\n" +
@@ -0,0 +1,57 @@
+package com.qapital.savings.goal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(SavingsGoalController.class)
+public class SavingsGoalControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private SavingsGoalTotals savingsGoalTotals;
+
+    @Test
+    public void shouldServeTotals() throws Exception {
+        when(savingsGoalTotals.total(11L)).thenReturn(new BigDecimal("4.95"));
+        when(savingsGoalTotals.totalsByRule(11L)).thenReturn(Collections.singletonMap(2L, new BigDecimal("3.00")));
+
+        mvc.perform(get("/api/savings/goal/11/total"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"savingsGoalId\":11,\"amount\":4.95}"));
+        mvc.perform(get("/api/savings/goal/11/total/rules"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"2\":3.00}"));
+    }
+
+    @Test
+    public void shouldServeDailyTotals() throws Exception {
+        SortedMap<LocalDate, BigDecimal> dailyTotals = new TreeMap<>();
+        dailyTotals.put(LocalDate.of(2017, 10, 30), new BigDecimal("0.45"));
+        dailyTotals.put(LocalDate.of(2017, 10, 31), new BigDecimal("4.50"));
+        when(savingsGoalTotals.dailyTotals(11L, LocalDate.of(2017, 10, 1), LocalDate.of(2017, 10, 31))).thenReturn(dailyTotals);
+
+        mvc.perform(get("/api/savings/goal/11/total/daily?from=2017-10-01&to=2017-10-31"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"2017-10-30\":0.45,\"2017-10-31\":4.50}"));
+    }
+
+}
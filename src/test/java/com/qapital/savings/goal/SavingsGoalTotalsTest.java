@@ -0,0 +1,50 @@
+package com.qapital.savings.goal;
+
+import com.qapital.savings.event.SavingsEvent;
+import com.qapital.savings.rule.SavingsRule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SavingsGoalTotalsTest {
+
+    private final SavingsGoalTotals savingsGoalTotals = new SavingsGoalTotals();
+
+    private final SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+    private final SavingsRule guiltyPleasureRule = SavingsRule.createGuiltyPleasureRule(2L, 100L, "Starbucks", new BigDecimal("3.00"), 11L);
+
+    private SavingsEvent event(SavingsRule savingsRule, LocalDate date, String amount, long triggerId) {
+        return new SavingsEvent(100L, 11L, savingsRule, SavingsEvent.EventName.rule_application,
+                date, new BigDecimal(amount), triggerId, Instant.now());
+    }
+
+    @Test
+    public void shouldKeepTotalsPerGoalRuleAndDay() throws Exception {
+        LocalDate day = LocalDate.of(2017, 10, 30);
+        savingsGoalTotals.accept(event(roundupRule, day, "0.45", 1L));
+        savingsGoalTotals.accept(event(roundupRule, day.plusDays(1), "1.50", 2L));
+        savingsGoalTotals.accept(event(guiltyPleasureRule, day.plusDays(1), "3.00", 2L));
+
+        assertEquals(new BigDecimal("4.95"), savingsGoalTotals.total(11L));
+        assertEquals(BigDecimal.ZERO, savingsGoalTotals.total(12L));
+        Map<Long, BigDecimal> byRule = savingsGoalTotals.totalsByRule(11L);
+        assertEquals(new BigDecimal("1.95"), byRule.get(1L));
+        assertEquals(new BigDecimal("3.00"), byRule.get(2L));
+        SortedMap<LocalDate, BigDecimal> expectedDays = new TreeMap<>();
+        expectedDays.put(day, new BigDecimal("0.45"));
+        expectedDays.put(day.plusDays(1), new BigDecimal("4.50"));
+        assertEquals(expectedDays, savingsGoalTotals.dailyTotals(11L, day.minusDays(7), day.plusDays(1)));
+        assertEquals(Collections.singletonMap(day, new BigDecimal("0.45")), savingsGoalTotals.dailyTotals(11L, day, day));
+        assertTrue(savingsGoalTotals.dailyTotals(11L, day.plusDays(1), day).isEmpty());
+    }
+
+}
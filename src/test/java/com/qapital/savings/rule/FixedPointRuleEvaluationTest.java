@@ -0,0 +1,102 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.MinorUnits;
+import com.qapital.bankdata.transaction.Transaction;
+import com.qapital.savings.event.SavingsEvent;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static com.qapital.savings.event.SavingsEvent.EventName.rule_application;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Differential test of the minor units (long) money path against the BigDecimal path
+ */
+public class FixedPointRuleEvaluationTest {
+
+    private final Random random = new Random(20171030L);
+
+    @Test
+    public void minorUnitsRoundupShouldMatchBigDecimalRoundup() throws Exception {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal transactionAmount = randomAmount(100_000).negate();
+            BigDecimal ruleAmount = randomAmount(1_000);
+            int numberOfGoalIds = 1 + random.nextInt(20);
+
+            BigDecimal expected = StandardSavingsRulesService.divideToGoalIds(
+                    StandardSavingsRulesService.roundup(transactionAmount, ruleAmount), numberOfGoalIds);
+            long actual = StandardSavingsRulesService.divideToGoalIds(
+                    StandardSavingsRulesService.roundup(MinorUnits.of(transactionAmount), MinorUnits.of(ruleAmount)), numberOfGoalIds);
+            int scale = numberOfGoalIds <= 1 ? Math.max(transactionAmount.scale(), ruleAmount.scale()) : MinorUnits.SCALE;
+
+            assertEquals(transactionAmount + " / " + ruleAmount + " / " + numberOfGoalIds,
+                    expected, MinorUnits.toBigDecimal(actual, scale));
+        }
+    }
+
+    @Test
+    public void minorUnitsDivisionShouldMatchBigDecimalDivision() throws Exception {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = randomAmount(100_000);
+            if(random.nextBoolean()) {
+                amount = amount.negate();
+            }
+            int numberOfGoalIds = 2 + random.nextInt(19);
+            assertEquals(amount + " / " + numberOfGoalIds,
+                    StandardSavingsRulesService.divideToGoalIds(amount, numberOfGoalIds),
+                    MinorUnits.toBigDecimal(StandardSavingsRulesService.divideToGoalIds(MinorUnits.of(amount), numberOfGoalIds), MinorUnits.SCALE));
+        }
+    }
+
+    @Test
+    public void executeRuleShouldMatchBigDecimalEvaluation() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            BigDecimal amount = id % 100 == 0 ? new BigDecimal("-1.005") : randomAmount(10_000).negate(); // not representable in minor units
+            transactions.add(new Transaction(id, 100L, amount, "Starbucks", LocalDate.of(2017, 10, 30)));
+        }
+        SavingsRulesService savingsRulesService = new StandardSavingsRulesService(userId -> transactions);
+
+        for (int numberOfGoalIds = 1; numberOfGoalIds <= 20; numberOfGoalIds++) {
+            Long[] savingsGoalIds = LongStream.rangeClosed(1, numberOfGoalIds).boxed().toArray(Long[]::new);
+            for (BigDecimal ruleAmount : new BigDecimal[]{new BigDecimal("2.00"), new BigDecimal("1.5"), new BigDecimal("5"), new BigDecimal("0.125")}) {
+                SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, ruleAmount, savingsGoalIds);
+                assertEquals(roundupRule.toString(), referenceRoundupEvents(roundupRule, transactions),
+                        savingsRulesService.replayRule(roundupRule));
+            }
+        }
+    }
+
+    private static List<SavingsEvent> referenceRoundupEvents(SavingsRule roundupRule, List<Transaction> transactions) {
+        List<SavingsEvent> savingsEvents = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            BigDecimal amount = StandardSavingsRulesService.divideToGoalIds(
+                    StandardSavingsRulesService.roundup(transaction.getAmount(), roundupRule.getAmount()),
+                    roundupRule.getSavingsGoalIds().size());
+            if(amount.signum() == 1) {
+                roundupRule.getSavingsGoalIds().forEach(goalId -> savingsEvents.add(new SavingsEvent(
+                        100L, goalId, roundupRule, rule_application, transaction.getDate(), amount, transaction.getId())));
+            }
+        }
+        return savingsEvents;
+    }
+
+    private BigDecimal randomAmount(int maxMinorUnits) {
+        int scale = random.nextInt(MinorUnits.SCALE + 1);
+        long unit = pow10(MinorUnits.SCALE - scale);
+        long minorUnits = 1 + random.nextInt(maxMinorUnits);
+        return BigDecimal.valueOf(Math.max(unit, minorUnits - minorUnits % unit), MinorUnits.SCALE)
+                .setScale(scale);
+    }
+
+    private static long pow10(int exponent) {
+        return LongStream.range(0, exponent).reduce(1, (result, i) -> result * 10);
+    }
+
+}
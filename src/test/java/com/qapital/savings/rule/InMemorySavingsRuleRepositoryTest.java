@@ -0,0 +1,67 @@
+package com.qapital.savings.rule;
+
+import com.qapital.savings.rule.SavingsRule.RuleType;
+import com.qapital.savings.rule.SavingsRule.Status;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InMemorySavingsRuleRepositoryTest {
+
+    private final InMemorySavingsRuleRepository repository = new InMemorySavingsRuleRepository();
+
+    @Test
+    public void shouldIndexRulesByTypeAndStatus() throws Exception {
+        SavingsRule roundupRule = repository.save(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 1L));
+        SavingsRule guiltyPleasureRule = repository.save(SavingsRule.createGuiltyPleasureRule(null, 100L, "Starbucks", BigDecimal.ONE, 1L));
+        SavingsRule pausedRule = repository.save(SavingsRule.createRoundupRule(null, 100L, BigDecimal.TEN, 1L).withStatus(Status.paused));
+        SavingsRule otherUserRule = repository.save(SavingsRule.createRoundupRule(10L, 200L, BigDecimal.TEN, 1L));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), Arrays.asList(roundupRule.getId(), guiltyPleasureRule.getId(), pausedRule.getId()));
+        assertEquals(Arrays.asList(roundupRule, guiltyPleasureRule), repository.activeRulesForUser(100L));
+        assertEquals(Arrays.asList(roundupRule, guiltyPleasureRule, pausedRule), repository.rulesForUser(100L));
+        assertEquals(Collections.singletonList(pausedRule), repository.rulesForUser(100L, RuleType.roundup, Status.paused));
+        assertEquals(Collections.singletonList(guiltyPleasureRule), repository.rulesForUser(100L, RuleType.guiltypleasure, Status.active));
+        assertEquals(Collections.singletonList(otherUserRule), repository.activeRulesForUser(200L));
+        assertTrue(repository.activeRulesForUser(300L).isEmpty());
+        assertEquals(11L, repository.save(SavingsRule.createRoundupRule(null, 300L, BigDecimal.TEN, 1L)).getId().longValue());
+        assertTrue(Arrays.equals(new long[] {100L, 200L, 300L}, repository.userIds()));
+    }
+
+    @Test
+    public void shouldChangeStatusWithoutChangingEarlierSnapshots() throws Exception {
+        SavingsRule roundupRule = repository.save(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 1L));
+        List<SavingsRule> before = repository.activeRulesForUser(100L);
+
+        SavingsRule pausedRule = repository.changeStatus(100L, roundupRule.getId(), Status.paused);
+
+        assertEquals(roundupRule.withStatus(Status.paused), pausedRule);
+        assertEquals(Collections.singletonList(roundupRule), before);
+        assertTrue(repository.activeRulesForUser(100L).isEmpty());
+        assertEquals(Collections.singletonList(pausedRule), repository.rulesForUser(100L));
+        assertNull(repository.changeStatus(100L, 42L, Status.deleted));
+        assertNull(repository.changeStatus(200L, roundupRule.getId(), Status.deleted));
+    }
+
+    @Test
+    public void shouldKeepRuleIdsUniqueOverUsers() throws Exception {
+        repository.save(SavingsRule.createRoundupRule(5L, 100L, BigDecimal.TEN, 1L));
+        try {
+            repository.save(SavingsRule.createRoundupRule(5L, 200L, BigDecimal.TEN, 1L));
+            fail("Expected the id of another user's rule to be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(repository.rulesForUser(200L).isEmpty());
+        }
+        assertEquals(BigDecimal.ONE, repository.save(SavingsRule.createRoundupRule(5L, 100L, BigDecimal.ONE, 1L)).getAmount());
+        assertEquals(6L, repository.save(SavingsRule.createRoundupRule(null, 200L, BigDecimal.TEN, 1L)).getId().longValue());
+    }
+
+}
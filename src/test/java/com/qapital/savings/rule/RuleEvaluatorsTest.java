@@ -0,0 +1,95 @@
+package com.qapital.savings.rule;
+
+import com.qapital.bankdata.transaction.Transaction;
+import com.qapital.bankdata.transaction.TransactionBatch;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RuleEvaluatorsTest {
+
+    private final MerchantNormalizer normalizer = new MerchantNormalizer(
+            Collections.singletonMap("STARBUCKS #1234", "Starbucks"));
+
+    private final RuleEvaluators ruleEvaluators = RuleEvaluators.standard(normalizer);
+
+    private final EvaluationBatch batch = new EvaluationBatch(TransactionBatch.of(100L, Arrays.asList(
+            new Transaction(1L, 100L, new BigDecimal("-3.55"), "STARBUCKS #1234", LocalDate.of(2015, 7, 1)),
+            new Transaction(2L, 100L, new BigDecimal("-4.00"), "  starbucks ", LocalDate.of(2015, 7, 1)),
+            new Transaction(3L, 100L, new BigDecimal("-12.00"), "Dorsia", LocalDate.of(2015, 7, 2)),
+            new Transaction(4L, 100L, new BigDecimal("-1.00"), null, LocalDate.of(2015, 7, 3)))), normalizer);
+
+    @Test
+    public void shouldNormalizeCaseWhitespaceAndAliases() throws Exception {
+        assertEquals("espresso house", normalizer.normalize("  Espresso HOUSE "));
+        assertEquals("starbucks", normalizer.normalize("Starbucks #1234"));
+        assertEquals("starbucks", normalizer.normalize("starbucks"));
+        assertNull(normalizer.normalize(null));
+
+        assertEquals(batch.merchantId(0), batch.merchantId(1));
+        assertEquals(batch.merchantIdOf("starbucks"), batch.merchantId(0));
+        assertEquals(EvaluationBatch.NO_MERCHANT, batch.merchantId(3));
+        assertEquals(EvaluationBatch.NO_MERCHANT, batch.merchantIdOf("espresso house"));
+    }
+
+    @Test
+    public void shouldMatchGuiltyPleasuresByNormalizedPlace() throws Exception {
+        RuleEvaluator.TransactionEvaluator starbucks = ruleEvaluators.evaluatorFor(
+                SavingsRule.createGuiltyPleasureRule(1L, 100L, "STARBUCKS ", new BigDecimal("3.00"), 1L, 2L)).bind(batch);
+        RuleEvaluator.TransactionEvaluator nowhere = ruleEvaluators.evaluatorFor(
+                SavingsRule.createGuiltyPleasureRule(2L, 100L, null, BigDecimal.TEN, 1L)).bind(batch);
+
+        assertEquals(new BigDecimal("1.50"), starbucks.amountPerGoal(0));
+        assertEquals(new BigDecimal("1.50"), starbucks.amountPerGoal(1));
+        assertNull(starbucks.amountPerGoal(2));
+        assertNull(starbucks.amountPerGoal(3));
+        assertNull(nowhere.amountPerGoal(0));
+    }
+
+    @Test
+    public void shouldTellTheMerchantsRulesApplyTo() throws Exception {
+        assertEquals(batch.merchantIdOf("starbucks"), ruleEvaluators.evaluatorFor(
+                SavingsRule.createGuiltyPleasureRule(1L, 100L, "STARBUCKS ", new BigDecimal("3.00"), 1L)).merchantIdIn(batch));
+        assertEquals(EvaluationBatch.NO_MERCHANT, ruleEvaluators.evaluatorFor(
+                SavingsRule.createGuiltyPleasureRule(2L, 100L, "Espresso House", new BigDecimal("3.00"), 1L)).merchantIdIn(batch));
+        assertEquals(EvaluationBatch.ANY_MERCHANT, ruleEvaluators.evaluatorFor(
+                SavingsRule.createRoundupRule(3L, 100L, new BigDecimal("2.00"), 1L)).merchantIdIn(batch));
+        assertEquals(2, batch.merchantCount());
+    }
+
+    @Test
+    public void shouldCacheEvaluatorsWhileTheRuleIsUnchanged() throws Exception {
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 1L);
+        RuleEvaluator evaluator = ruleEvaluators.evaluatorFor(roundupRule);
+
+        assertSame(evaluator, ruleEvaluators.evaluatorFor(SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 1L)));
+        assertEquals(new BigDecimal("0.45"), evaluator.bind(batch).amountPerGoal(0));
+
+        RuleEvaluator changed = ruleEvaluators.evaluatorFor(SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("5.00"), 1L));
+        assertNotSame(evaluator, changed);
+        assertEquals(new BigDecimal("1.45"), changed.bind(batch).amountPerGoal(0));
+        assertEquals(new BigDecimal("3.00"), changed.bind(batch).amountPerGoal(2));
+        assertNull(evaluator.bind(batch).amountPerGoal(1)); // already a multiple of 2.00
+    }
+
+    @Test
+    public void shouldCompileAgainAfterInvalidation() throws Exception {
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 1L);
+        RuleEvaluator evaluator = ruleEvaluators.evaluatorFor(roundupRule);
+
+        ruleEvaluators.invalidate(1L);
+
+        RuleEvaluator recompiled = ruleEvaluators.evaluatorFor(roundupRule);
+        assertNotSame(evaluator, recompiled);
+        assertSame(recompiled, ruleEvaluators.evaluatorFor(roundupRule));
+    }
+
+}
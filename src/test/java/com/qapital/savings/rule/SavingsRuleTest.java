@@ -5,9 +5,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qapital.savings.SavingsJacksonModule;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -59,6 +61,17 @@ public class SavingsRuleTest {
         assertEquals(json, mapper.writerWithDefaultPrettyPrinter().writeValueAsString(guiltyPleasureRule));
     }
 
+    @Test
+    public void shouldSerializeWithoutReflectionLikeTheBeanSerializer() throws Exception {
+        ObjectMapper fastMapper = mapper.copy().registerModule(new SavingsJacksonModule());
+        SavingsRule withoutUser = new SavingsRule(3L, null, SavingsRule.RuleType.guiltypleasure, null, BigDecimal.ONE, null, null);
+        for (SavingsRule savingsRule : Arrays.asList(roundUpRule, guiltyPleasureRule, withoutUser,
+                SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2"), 1L, 2L, 3L))) {
+            assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(savingsRule),
+                    fastMapper.writerWithDefaultPrettyPrinter().writeValueAsString(savingsRule));
+        }
+    }
+
     @Test
     public void shouldDeserializeGuiltyPleasureRule() throws Exception {
         String json = "{\n" +
@@ -1,5 +1,11 @@
 package com.qapital.savings.rule;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qapital.SmileHttpMessageConverter;
+import com.qapital.bankdata.transaction.Transaction;
 import com.qapital.savings.event.SavingsEvent;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,24 +14,39 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(SavingsRulesController.class)
+@TestPropertySource(properties = "savings.rules.batch.max-size=2")
 public class SavingsRulesControllerTest {
 
     @Autowired
@@ -37,7 +58,7 @@ public class SavingsRulesControllerTest {
     @Before
     public void setUp() throws Exception {
         Instant created  = LocalDateTime.of(2017, 10, 30, 21, 30, 14).atZone(ZoneId.systemDefault()).toInstant();
-        when(savingsRulesService.executeRule(any(SavingsRule.class))).thenReturn(Arrays.asList(
+        when(savingsRulesService.executeRuleAsync(any(SavingsRule.class))).thenReturn(CompletableFuture.completedFuture(Arrays.asList(
                 new SavingsEvent(1L, 2L,
                         SavingsRule.createGuiltyPleasureRule(10L, 1L, "Dorsia", BigDecimal.ONE),
                         SavingsEvent.EventName.rule_application,
@@ -46,12 +67,18 @@ public class SavingsRulesControllerTest {
                         SavingsRule.createRoundupRule(11L, 1L, new BigDecimal("2.00")),
                         SavingsEvent.EventName.rule_application,
                         LocalDate.of(2017,10, 30), new BigDecimal("4.60"), 111L, created)
+        )));
+        when(savingsRulesService.executeActiveRules(1L)).thenReturn(Collections.singletonList(
+                new SavingsEvent(1L, 3L,
+                        SavingsRule.createRoundupRule(11L, 1L, new BigDecimal("2.00")),
+                        SavingsEvent.EventName.rule_application,
+                        LocalDate.of(2017,10, 30), new BigDecimal("4.60"), 111L, created)
         ));
     }
 
     @Test
     public void shouldExecuteRule() throws Exception {
-        mvc.perform(post("/api/savings/rule/execute")
+        MvcResult mvcResult = mvc.perform(post("/api/savings/rule/execute")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\n" +
                         "  \"userId\" : 100,\n" +
@@ -59,6 +86,9 @@ public class SavingsRulesControllerTest {
                         "  \"amount\" : 2.00,\n" +
                         "  \"savingsGoalIds\" : [1]\n" +
                         "}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(content().json(
@@ -88,6 +118,86 @@ public class SavingsRulesControllerTest {
                // implement with jsonPath()
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldExecuteRuleAsSmile() throws Exception {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory()).registerModule(new JavaTimeModule());
+        MvcResult mvcResult = mvc.perform(post("/api/savings/rule/execute")
+                .contentType(SmileHttpMessageConverter.APPLICATION_SMILE)
+                .accept(SmileHttpMessageConverter.APPLICATION_SMILE)
+                .content(smileMapper.writeValueAsBytes(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 1L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] smile = mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SmileHttpMessageConverter.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<SavingsEvent> expected = (List<SavingsEvent>) mvcResult.getAsyncResult();
+        List<SavingsEvent> savingsEvents = smileMapper.readValue(smile, new TypeReference<List<SavingsEvent>>() {});
+        assertEquals(expected, savingsEvents);
+        assertEquals(LocalDate.of(2017, 10, 30), savingsEvents.get(0).getDate());
+        assertEquals(new BigDecimal("15.40"), savingsEvents.get(0).getAmount());
+        assertEquals(expected.get(0).getCreated(), savingsEvents.get(0).getCreated());
+    }
+
+    @Test
+    public void shouldReplayRule() throws Exception {
+        when(savingsRulesService.replayRuleAsync(any(SavingsRule.class)))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+        MvcResult mvcResult = mvc.perform(post("/api/savings/rule/execute?replay=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\n" +
+                        "  \"id\" : 11,\n" +
+                        "  \"userId\" : 100,\n" +
+                        "  \"ruleType\" : \"roundup\",\n" +
+                        "  \"amount\" : 2.00,\n" +
+                        "  \"savingsGoalIds\" : [1]\n" +
+                        "}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+        verify(savingsRulesService).replayRuleAsync(any(SavingsRule.class));
+    }
+
+    @Test
+    public void shouldStreamRuleExecutionAsNdjson() throws Exception {
+        Instant created  = LocalDateTime.of(2017, 10, 30, 21, 30, 14).atZone(ZoneId.systemDefault()).toInstant();
+        doAnswer(invocation -> {
+            Consumer<SavingsEvent> consumer = invocation.getArgument(2);
+            for (long triggerId = 1; triggerId <= 2; triggerId++) {
+                consumer.accept(new SavingsEvent(1L, 3L,
+                        SavingsRule.createRoundupRule(11L, 1L, new BigDecimal("2.00")),
+                        SavingsEvent.EventName.rule_application,
+                        LocalDate.of(2017,10, 30), new BigDecimal("4.60"), triggerId, created));
+            }
+            return null;
+        }).when(savingsRulesService).streamRule(any(SavingsRule.class), eq(false), any());
+
+        MvcResult mvcResult = mvc.perform(post("/api/savings/rule/execute")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(SavingsRulesController.APPLICATION_NDJSON)
+                .content("{\n" +
+                        "  \"userId\" : 100,\n" +
+                        "  \"ruleType\" : \"roundup\",\n" +
+                        "  \"amount\" : 2.00,\n" +
+                        "  \"savingsGoalIds\" : [1]\n" +
+                        "}\n"))
+                .andExpect(request().asyncStarted())
+                .andExpect(content().contentTypeCompatibleWith(SavingsRulesController.APPLICATION_NDJSON))
+                .andReturn();
+        mvcResult.getAsyncResult(); // waits until streamed
+        String createdJson = DateTimeFormatter.ISO_INSTANT.format(created);
+        assertEquals(
+                "{\"userId\":1,\"savingsGoalId\":3,\"savingsRuleId\":11,\"ruleType\":\"roundup\",\"eventName\":\"rule_application\"," +
+                        "\"date\":\"2017-10-30\",\"amount\":4.60,\"triggerId\":1,\"cancelled\":false,\"created\":\"" + createdJson + "\"}\n" +
+                "{\"userId\":1,\"savingsGoalId\":3,\"savingsRuleId\":11,\"ruleType\":\"roundup\",\"eventName\":\"rule_application\"," +
+                        "\"date\":\"2017-10-30\",\"amount\":4.60,\"triggerId\":2,\"cancelled\":false,\"created\":\"" + createdJson + "\"}\n",
+                mvcResult.getResponse().getContentAsString());
+    }
+
     @Test
     public void shouldValidateInput() throws Exception {
         mvc.perform(post("/api/savings/rule/execute")
@@ -97,4 +207,114 @@ public class SavingsRulesControllerTest {
                         "   \"savingsGoalIds\" : [1] }\n"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldExecuteActiveRules() throws Exception {
+        mvc.perform(post("/api/savings/rule/execute/active/1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(
+                        "[{" +
+                                    "\"userId\":1," +
+                                    "\"savingsGoalId\":3," +
+                                    "\"savingsRuleId\":11," +
+                                    "\"ruleType\":\"roundup\"," +
+                                    "\"amount\":4.60," +
+                                    "\"triggerId\":111" +
+                                "}]"));
+    }
+
+    @Test
+    public void shouldExecuteRuleBatch() throws Exception {
+        when(savingsRulesService.executeRules(any())).thenReturn(Collections.singletonMap(11L, Collections.emptyList()));
+        mvc.perform(post("/api/savings/rule/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\n" +
+                        "  \"id\" : 11,\n" +
+                        "  \"userId\" : 100,\n" +
+                        "  \"ruleType\" : \"roundup\",\n" +
+                        "  \"amount\" : 2.00,\n" +
+                        "  \"savingsGoalIds\" : [1]\n" +
+                        "}]\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"11\":[]}"));
+    }
+
+    @Test
+    public void shouldRejectInvalidRuleBatch() throws Exception {
+        when(savingsRulesService.executeRules(any())).thenThrow(new IllegalArgumentException("Incomplete savings rule"));
+        mvc.perform(post("/api/savings/rule/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{ \"ruleType\" : \"roundup\" }]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldValidateEachRuleOfBatch() throws Exception {
+        mvc.perform(post("/api/savings/rule/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{ \"id\" : 11, \"userId\" : 100, \"ruleType\" : \"roundup\", \"amount\" : 2.00 },\n" +
+                        " { \"id\" : 12, \"userId\" : 100, \"ruleType\" : \"roundup\" }]"))
+                .andExpect(status().isBadRequest());
+        verify(savingsRulesService, never()).executeRules(any());
+    }
+
+    @Test
+    public void shouldRejectBatchLargerThanMaximum() throws Exception {
+        mvc.perform(post("/api/savings/rule/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{ \"id\" : 11, \"userId\" : 100, \"ruleType\" : \"roundup\", \"amount\" : 2.00 },\n" +
+                        " { \"id\" : 12, \"userId\" : 100, \"ruleType\" : \"roundup\", \"amount\" : 2.00 },\n" +
+                        " { \"id\" : 13, \"userId\" : 100, \"ruleType\" : \"roundup\", \"amount\" : 2.00 }]"))
+                .andExpect(status().isBadRequest());
+        verify(savingsRulesService, never()).executeRules(any());
+    }
+
+    @Test
+    public void shouldSaveRule() throws Exception {
+        when(savingsRulesService.saveRule(any(SavingsRule.class))).thenAnswer(invocation ->
+                invocation.<SavingsRule>getArgument(0).withId(12L));
+        mvc.perform(post("/api/savings/rule")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\n" +
+                        "  \"userId\" : 100,\n" +
+                        "  \"ruleType\" : \"roundup\",\n" +
+                        "  \"amount\" : 2.00,\n" +
+                        "  \"savingsGoalIds\" : [1]\n" +
+                        "}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"id\":12,\"userId\":100,\"ruleType\":\"roundup\",\"status\":\"active\"}"));
+    }
+
+    @Test
+    public void shouldChangeRuleStatus() throws Exception {
+        SavingsRule pausedRule = SavingsRule.createRoundupRule(12L, 100L, new BigDecimal("2.00"), 1L).withStatus(SavingsRule.Status.paused);
+        when(savingsRulesService.changeRuleStatus(100L, 12L, SavingsRule.Status.paused)).thenReturn(pausedRule);
+        mvc.perform(post("/api/savings/rule/12/status?userId=100&status=paused")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"id\":12,\"status\":\"paused\"}"));
+        mvc.perform(post("/api/savings/rule/13/status?userId=100&status=paused")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldIngestTransactions() throws Exception {
+        when(savingsRulesService.ingestTransactions(any())).thenReturn(Collections.emptyList());
+        mvc.perform(post("/api/savings/rule/execute/transactions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\n" +
+                        "  \"id\" : 8,\n" +
+                        "  \"userId\" : 100,\n" +
+                        "  \"amount\" : -3.55,\n" +
+                        "  \"description\" : \"Starbucks\",\n" +
+                        "  \"date\" : \"2015-07-26\"\n" +
+                        "}]\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+        verify(savingsRulesService).ingestTransactions(Collections.singletonList(
+                new Transaction(8L, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26))));
+    }
+}
@@ -1,25 +1,52 @@
 package com.qapital.savings.rule;
 
+import com.codahale.metrics.MetricRegistry;
+import com.qapital.bankdata.transaction.CachingTransactionsService;
+import com.qapital.bankdata.transaction.ExecutorAsyncTransactionsService;
 import com.qapital.bankdata.transaction.Transaction;
+import com.qapital.bankdata.transaction.TransactionPage;
 import com.qapital.bankdata.transaction.TransactionsService;
+import com.qapital.concurrent.PlatformTaskExecutors;
+import com.qapital.savings.event.MappedSavingsEventLog;
+import com.qapital.savings.event.PublishingSavingsEventStore;
 import com.qapital.savings.event.SavingsEvent;
+import com.qapital.savings.event.SavingsEventDeduplicator;
+import com.qapital.savings.event.SavingsEventStore;
+import com.qapital.savings.goal.SavingsGoalTotals;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static com.qapital.savings.event.SavingsEvent.EventName.rule_application;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class StandardSavingsRulesServiceTest {
@@ -27,7 +54,10 @@ public class StandardSavingsRulesServiceTest {
     @Rule
     public MockitoRule rule = MockitoJUnit.rule();
 
-    @Mock
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS) // pages and date ranges come from the stubbed history
     private TransactionsService transactionsService;
 
     private SavingsRulesService savingsRulesService;
@@ -38,6 +68,18 @@ public class StandardSavingsRulesServiceTest {
         savingsRulesService = new StandardSavingsRulesService(transactionsService);
     }
 
+    private SavingsRulesService newService(MerchantNormalizer merchantNormalizer, RuleCheckpointStore ruleCheckpointStore,
+                                           SavingsEventStore savingsEventStore) {
+        return newService(merchantNormalizer, ruleCheckpointStore, savingsEventStore, new SavingsEventDeduplicator(1000, 0.01));
+    }
+
+    private SavingsRulesService newService(MerchantNormalizer merchantNormalizer, RuleCheckpointStore ruleCheckpointStore,
+                                           SavingsEventStore savingsEventStore, SavingsEventDeduplicator savingsEventDeduplicator) {
+        return new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                new ExecutorAsyncTransactionsService(transactionsService, Runnable::run),
+                merchantNormalizer, RuleEvaluators.standard(merchantNormalizer), ruleCheckpointStore, savingsEventStore, savingsEventDeduplicator, new MetricRegistry(), new PlatformTaskExecutors(), 1, 1000);
+    }
+
     @Test
     public void shouldRoundUp() throws Exception {
         verifyRoundUp(new BigDecimal("-3.55"), new BigDecimal("2.00"), new BigDecimal("0.45"));
@@ -137,4 +179,486 @@ public class StandardSavingsRulesServiceTest {
         assertTrue(savingsEvents.contains(new SavingsEvent(100L, 11L, roundUpRule, rule_application, transactionDate, new BigDecimal("1.50"), 4L)));
         assertTrue(savingsEvents.contains(new SavingsEvent(100L, 22L, roundUpRule, rule_application, transactionDate, new BigDecimal("1.50"), 4L)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void executeActiveRulesShouldFetchTransactionsOnceAndApplyAllRules() throws Exception {
+        Long userId = 100L;
+        LocalDate transactionDate = LocalDate.now().minusDays(5);
+        when(transactionsService.latestTransactionsForUser(eq(userId))).thenReturn(Arrays.asList(
+                new Transaction(1L, userId, new BigDecimal("-3.55"), "Starbucks", transactionDate),
+                new Transaction(2L, userId, new BigDecimal("1945.00"), "Salary", transactionDate),
+                new Transaction(3L, userId, new BigDecimal("-9.76"), "Amazon", transactionDate)
+        ));
+        List<SavingsRule> savingsRules = Arrays.asList(
+                savingsRulesService.saveRule(SavingsRule.createGuiltyPleasureRule(1L, userId, "Starbucks", new BigDecimal("3.00"), 1L, 2L)),
+                savingsRulesService.saveRule(SavingsRule.createRoundupRule(2L, userId, new BigDecimal("2.00"), 1L)));
+        savingsRulesService.saveRule(SavingsRule.createRoundupRule(3L, userId, new BigDecimal("5.00"), 1L).withStatus(SavingsRule.Status.paused));
+        SavingsRulesService ruleByRuleService = new StandardSavingsRulesService(transactionsService);
+        List<SavingsEvent> expected = new ArrayList<>();
+        savingsRules.forEach(savingsRule -> expected.addAll(ruleByRuleService.executeRule(savingsRule)));
+        int executeRuleFetches = savingsRules.size();
+
+        List<SavingsEvent> savingsEvents = savingsRulesService.executeActiveRules(userId);
+
+        verify(transactionsService, times(executeRuleFetches + 1)).latestTransactionsForUser(eq(userId));
+        assertEquals(expected.size(), savingsEvents.size());
+        assertTrue(savingsEvents.containsAll(expected));
+    }
+
+    @Test
+    public void executeRulesShouldGroupRulesPerUserAndKeyResultsByRuleId() throws Exception {
+        LocalDate transactionDate = LocalDate.now().minusDays(5);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Starbucks", transactionDate)
+        ));
+        when(transactionsService.latestTransactionsForUser(eq(200L))).thenReturn(Arrays.asList(
+                new Transaction(2L, 200L, new BigDecimal("-9.76"), "Amazon", transactionDate)
+        ));
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        SavingsRule guiltyPleasureRule = SavingsRule.createGuiltyPleasureRule(2L, 100L, "Starbucks", new BigDecimal("3.00"), 11L);
+        SavingsRule otherUserRule = SavingsRule.createRoundupRule(3L, 200L, new BigDecimal("5.00"), 22L);
+
+        Map<Long, List<SavingsEvent>> savingsEvents = savingsRulesService.executeRules(
+                Arrays.asList(roundupRule, otherUserRule, guiltyPleasureRule));
+
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(100L));
+        verify(transactionsService, times(1)).latestTransactionsForUser(eq(200L));
+        assertEquals(3, savingsEvents.size());
+        assertEquals(Collections.singletonList(new SavingsEvent(100L, 11L, roundupRule, rule_application, transactionDate, new BigDecimal("0.45"), 1L)),
+                savingsEvents.get(1L));
+        assertEquals(Collections.singletonList(new SavingsEvent(100L, 11L, guiltyPleasureRule, rule_application, transactionDate, new BigDecimal("3.00"), 1L)),
+                savingsEvents.get(2L));
+        assertEquals(Collections.singletonList(new SavingsEvent(200L, 22L, otherUserRule, rule_application, transactionDate, new BigDecimal("0.24"), 2L)),
+                savingsEvents.get(3L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void executeRulesShouldRejectRulesWithoutId() throws Exception {
+        savingsRulesService.executeRules(Collections.singletonList(
+                SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 11L)));
+    }
+
+    @Test
+    public void executeActiveRulesShouldMatchGuiltyPleasureAliases() throws Exception {
+        SavingsRulesService aliasingService = newService(
+                new MerchantNormalizer(Collections.singletonMap("STARBUCKS #1234", "starbucks")),
+                new InMemoryRuleCheckpointStore(), SavingsEventStore.TRANSIENT);
+        aliasingService.saveRule(SavingsRule.createGuiltyPleasureRule(1L, 100L, "Starbucks", new BigDecimal("3.00"), 1L, 2L));
+        LocalDate transactionDate = LocalDate.now().minusDays(5);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-4.00"), "STARBUCKS #1234", transactionDate),
+                new Transaction(2L, 100L, new BigDecimal("-4.00"), " Starbucks ", transactionDate),
+                new Transaction(3L, 100L, new BigDecimal("-4.00"), "Starbucks Reserve", transactionDate)
+        ));
+        List<SavingsEvent> savingsEvents = aliasingService.executeActiveRules(100L);
+
+        assertEquals(4, savingsEvents.size()); // 2 transactions on 2 goals of the guilty pleasure rule
+        savingsEvents.forEach(savingsEvent -> assertEquals(SavingsRule.RuleType.guiltypleasure, savingsEvent.getRuleType()));
+    }
+
+    @Test
+    public void executeRuleShouldOnlyProcessTransactionsAfterCheckpoint() throws Exception {
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        LocalDate transactionDate = LocalDate.now().minusDays(5);
+        Transaction first = new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", transactionDate);
+        Transaction second = new Transaction(2L, 100L, new BigDecimal("-9.76"), "Amazon", transactionDate.plusDays(1));
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(first));
+        assertEquals(1, savingsRulesService.executeRule(roundupRule).size());
+        assertTrue(savingsRulesService.executeRule(roundupRule).isEmpty());
+
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(second, first));
+        List<SavingsEvent> savingsEvents = savingsRulesService.executeRule(roundupRule);
+        assertEquals(Collections.singletonList(new SavingsEvent(100L, 11L, roundupRule, rule_application, second.getDate(), new BigDecimal("0.24"), 2L)),
+                savingsEvents);
+
+        assertEquals(2, savingsRulesService.replayRule(roundupRule).size());
+        assertTrue(savingsRulesService.executeRule(roundupRule).isEmpty());
+    }
+
+    @Test
+    public void executeRuleAsyncShouldCompleteWhenTransactionsAreFetched() throws Exception {
+        CompletableFuture<List<Transaction>> transactions = new CompletableFuture<>();
+        SavingsRulesService asyncService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                userId -> transactions,
+                new MerchantNormalizer(), RuleEvaluators.standard(new MerchantNormalizer()), new InMemoryRuleCheckpointStore(),
+                SavingsEventStore.TRANSIENT, new SavingsEventDeduplicator(1000, 0.01), new MetricRegistry(), new PlatformTaskExecutors(), 1, 1000);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        LocalDate transactionDate = LocalDate.now().minusDays(5);
+
+        CompletableFuture<List<SavingsEvent>> savingsEvents = asyncService.executeRuleAsync(roundupRule);
+        assertFalse(savingsEvents.isDone());
+
+        transactions.complete(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", transactionDate)));
+        assertEquals(Collections.singletonList(new SavingsEvent(100L, 11L, roundupRule, rule_application, transactionDate, new BigDecimal("0.45"), 1L)),
+                savingsEvents.get());
+    }
+
+    @Test
+    public void executeRuleShouldStoreEventsWithIds() throws Exception {
+        MappedSavingsEventLog savingsEventLog = new MappedSavingsEventLog(folder.getRoot().toPath(), 1024 * 1024);
+        SavingsRulesService storingService = newService(
+                new MerchantNormalizer(), new InMemoryRuleCheckpointStore(), savingsEventLog);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L, 22L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5))));
+
+        List<SavingsEvent> savingsEvents = storingService.executeRule(roundupRule);
+
+        assertEquals(Arrays.asList(1L, 2L), Arrays.asList(savingsEvents.get(0).getId(), savingsEvents.get(1).getId()));
+        List<SavingsEvent> storedEvents = new ArrayList<>();
+        savingsEventLog.replay(storedEvents::add);
+        assertEquals(savingsEvents, storedEvents);
+        savingsEventLog.close();
+    }
+
+    @Test
+    public void executeRuleShouldNotEmitEventsTwiceWhenCheckpointIsLost() throws Exception {
+        MappedSavingsEventLog savingsEventLog = new MappedSavingsEventLog(folder.getRoot().toPath(), 1024 * 1024);
+        SavingsEventDeduplicator savingsEventDeduplicator = new SavingsEventDeduplicator(1000, 0.01);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5))));
+        assertEquals(1, newService(new MerchantNormalizer(), new InMemoryRuleCheckpointStore(), savingsEventLog, savingsEventDeduplicator)
+                .executeRule(roundupRule).size());
+        // Same transaction again, e.g. after a restart lost the checkpoints
+        SavingsRulesService restartedService = newService(new MerchantNormalizer(), new InMemoryRuleCheckpointStore(),
+                savingsEventLog, savingsEventDeduplicator);
+        assertTrue(restartedService.executeRule(roundupRule).isEmpty());
+        assertEquals(1, restartedService.replayRule(roundupRule).size());
+
+        List<SavingsEvent> storedEvents = new ArrayList<>();
+        savingsEventLog.replay(storedEvents::add);
+        assertEquals(1, storedEvents.size());
+        savingsEventLog.close();
+    }
+
+    @Test
+    public void executeRuleShouldNotStoreEventsOfRulesWithoutId() throws Exception {
+        MappedSavingsEventLog savingsEventLog = new MappedSavingsEventLog(folder.getRoot().toPath(), 1024 * 1024);
+        SavingsRulesService storingService = newService(new MerchantNormalizer(), new InMemoryRuleCheckpointStore(), savingsEventLog);
+        SavingsRule unsavedRule = SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5))));
+
+        assertEquals(1, storingService.executeRule(unsavedRule).size());
+        assertEquals(1, storingService.executeRule(unsavedRule).size());
+
+        List<SavingsEvent> storedEvents = new ArrayList<>();
+        savingsEventLog.replay(storedEvents::add);
+        assertTrue(storedEvents.isEmpty());
+        savingsEventLog.close();
+    }
+
+    @Test
+    public void replayRuleShouldNotStoreEventsWhoseKeysWereDropped() throws Exception {
+        MappedSavingsEventLog savingsEventLog = new MappedSavingsEventLog(folder.getRoot().toPath(), 1024 * 1024);
+        // one key per generation in each stripe
+        SavingsEventDeduplicator savingsEventDeduplicator = new SavingsEventDeduplicator(10, 0.1, 128);
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        SavingsRulesService service = newService(new MerchantNormalizer(), ruleCheckpointStore, savingsEventLog, savingsEventDeduplicator);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        List<Transaction> transactions = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            transactions.add(new Transaction(id, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.of(2015, 7, 1)));
+        }
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(transactions);
+        assertEquals(1000, service.executeRule(roundupRule).size());
+        assertTrue(savingsEventDeduplicator.size() < 1000);
+
+        assertEquals(1000, service.replayRule(roundupRule).size());
+
+        assertTrue(service.executeRule(roundupRule).isEmpty());
+        assertEquals(new RuleCheckpoint(1L, 1000L, LocalDate.of(2015, 7, 1)), ruleCheckpointStore.checkpointFor(1L));
+        List<SavingsEvent> storedEvents = new ArrayList<>();
+        savingsEventLog.replay(storedEvents::add);
+        assertEquals(1000, storedEvents.size());
+        savingsEventLog.close();
+    }
+
+    @Test
+    public void executeRuleShouldEmitAgainAfterTheStoreFailedToSync() throws Exception {
+        SavingsEventStore failingStore = new SavingsEventStore() {
+            private int failures = 2; // the sync of the page and the one after the failure
+
+            @Override
+            public SavingsEvent append(SavingsEvent savingsEvent) {
+                return savingsEvent;
+            }
+
+            @Override
+            public void sync() {
+                if(failures > 0) {
+                    failures--;
+                    throw new IllegalStateException("Disk full");
+                }
+            }
+
+            @Override
+            public void replay(Consumer<SavingsEvent> savingsEventConsumer) {
+            }
+        };
+        SavingsGoalTotals savingsGoalTotals = new SavingsGoalTotals();
+        SavingsRulesService service = newService(new MerchantNormalizer(), new InMemoryRuleCheckpointStore(),
+                new PublishingSavingsEventStore(failingStore, Collections.singletonList(savingsGoalTotals)));
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5))));
+        try {
+            service.executeRule(roundupRule);
+            fail("Expected the sync to fail");
+        } catch (IllegalStateException expected) {
+            // the retry below emits the event that never became durable
+        }
+        assertEquals(BigDecimal.ZERO, savingsGoalTotals.total(11L));
+        assertEquals(1, service.executeRule(roundupRule).size());
+        assertTrue(service.executeRule(roundupRule).isEmpty());
+        // published once, when it became durable
+        assertEquals(new BigDecimal("0.45"), savingsGoalTotals.total(11L));
+    }
+
+    @Test
+    public void executeRuleShouldRecordMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        SavingsRulesService meteredService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                new ExecutorAsyncTransactionsService(transactionsService, Runnable::run), new MerchantNormalizer(),
+                RuleEvaluators.standard(new MerchantNormalizer()), new InMemoryRuleCheckpointStore(), SavingsEventStore.TRANSIENT, new SavingsEventDeduplicator(1000, 0.01), metricRegistry, new PlatformTaskExecutors(), 1, 1000);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5)),
+                new Transaction(2L, 100L, new BigDecimal("1945.00"), "Salary", LocalDate.now().minusDays(5))));
+
+        meteredService.executeRule(SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L, 22L));
+        meteredService.executeRule(SavingsRule.createRoundupRule(2L, 100L, new BigDecimal("2.00")));
+
+        assertEquals(1, metricRegistry.timer("savings.rules.evaluation.roundup").getCount());
+        assertEquals(2, metricRegistry.counter("savings.rules.events.roundup").getCount());
+        assertEquals(1, metricRegistry.histogram("savings.rules.events-per-execution.roundup").getCount());
+        assertEquals(2, metricRegistry.counter("savings.rules.transactions.scanned").getCount());
+        assertEquals(1, metricRegistry.counter("savings.rules.transactions.expenses").getCount());
+        assertEquals(1, metricRegistry.counter("savings.rules.skipped").getCount());
+    }
+
+    @Test
+    public void executeRuleShouldNotCountSkippedDuplicatesAsEvents() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        SavingsRulesService meteredService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                new ExecutorAsyncTransactionsService(transactionsService, Runnable::run), new MerchantNormalizer(),
+                RuleEvaluators.standard(new MerchantNormalizer()), ruleCheckpointStore, SavingsEventStore.TRANSIENT, new SavingsEventDeduplicator(1000, 0.01), metricRegistry, new PlatformTaskExecutors(), 1, 1000);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.now().minusDays(5))));
+        SavingsRule savingsRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L, 22L);
+
+        assertEquals(2, meteredService.executeRule(savingsRule).size());
+        ruleCheckpointStore.reset(1L);
+        assertEquals(0, meteredService.executeRule(savingsRule).size());
+
+        assertEquals(2, metricRegistry.counter("savings.rules.events.roundup").getCount());
+        assertEquals(2, metricRegistry.counter("savings.rules.events.duplicates").getCount());
+        assertEquals(0, metricRegistry.histogram("savings.rules.events-per-execution.roundup").getSnapshot().getMin());
+    }
+
+    @Test
+    public void executeActiveRulesShouldApplyGuiltyPleasuresOnlyAtTheirPlaces() throws Exception {
+        SavingsRule starbucksRule = savingsRulesService.saveRule(SavingsRule.createGuiltyPleasureRule(null, 100L, "Starbucks", new BigDecimal("3.00"), 11L));
+        SavingsRule dorsiaRule = savingsRulesService.saveRule(SavingsRule.createGuiltyPleasureRule(null, 100L, "Dorsia", new BigDecimal("5.00"), 11L));
+        savingsRulesService.saveRule(SavingsRule.createGuiltyPleasureRule(null, 100L, "Espresso House", new BigDecimal("1.00"), 11L));
+        SavingsRule roundupRule = savingsRulesService.saveRule(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 11L));
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26)),
+                new Transaction(2L, 100L, new BigDecimal("-90.00"), "Dorsia", LocalDate.of(2015, 7, 26)),
+                new Transaction(3L, 100L, new BigDecimal("-4.10"), " STARBUCKS", LocalDate.of(2015, 7, 27))));
+
+        List<SavingsEvent> savingsEvents = savingsRulesService.executeActiveRules(100L);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 1L, 3L), savingsEvents.stream().map(SavingsEvent::getTriggerId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(starbucksRule.getId(), dorsiaRule.getId(), starbucksRule.getId(), roundupRule.getId(), roundupRule.getId()),
+                savingsEvents.stream().map(SavingsEvent::getSavingsRuleId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void executeActiveRulesShouldTimeEachRuleTypeOfThePass() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        SavingsRulesService meteredService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                new ExecutorAsyncTransactionsService(transactionsService, Runnable::run), new MerchantNormalizer(),
+                RuleEvaluators.standard(new MerchantNormalizer()), new InMemoryRuleCheckpointStore(), SavingsEventStore.TRANSIENT, new SavingsEventDeduplicator(1000, 0.01), metricRegistry, new PlatformTaskExecutors(), 1, 1000);
+        meteredService.saveRule(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 11L));
+        meteredService.saveRule(SavingsRule.createGuiltyPleasureRule(null, 100L, "Starbucks", new BigDecimal("3.00"), 11L));
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Collections.singletonList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.now().minusDays(5))));
+
+        assertEquals(2, meteredService.executeActiveRules(100L).size());
+
+        assertEquals(1, metricRegistry.timer("savings.rules.evaluation.roundup").getCount());
+        assertEquals(1, metricRegistry.timer("savings.rules.evaluation.guiltypleasure").getCount());
+        assertFalse(metricRegistry.getTimers().containsKey("savings.rules.evaluation.mixed"));
+        assertEquals(1, metricRegistry.timer("savings.rules.transactions.fetch").getCount());
+    }
+
+    @Test
+    public void executeRuleAsyncShouldEvaluateTheHistoryPageByPage() throws Exception {
+        SavingsRulesService pagingService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), transactionsService,
+                new ExecutorAsyncTransactionsService(transactionsService, Runnable::run), new MerchantNormalizer(),
+                RuleEvaluators.standard(new MerchantNormalizer()), new InMemoryRuleCheckpointStore(), SavingsEventStore.TRANSIENT,
+                new SavingsEventDeduplicator(1000, 0.01), new MetricRegistry(), new PlatformTaskExecutors(), 1, 2);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.of(2015, 7, 1)),
+                new Transaction(2L, 100L, new BigDecimal("-0.50"), "Candy", LocalDate.of(2015, 7, 2)),
+                new Transaction(3L, 100L, new BigDecimal("-9.76"), "Amazon", LocalDate.of(2015, 7, 8))
+        ));
+
+        List<SavingsEvent> savingsEvents = pagingService.executeRuleAsync(roundupRule).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), savingsEvents.stream().map(SavingsEvent::getTriggerId).collect(Collectors.toList()));
+        verify(transactionsService, times(2)).transactionsForUser(eq(100L), anyLong(), eq(2));
+        verify(transactionsService, times(0)).transactionsForUser(eq(100L), anyLong(), eq(1000));
+    }
+
+    @Test
+    public void executeRuleShouldMoveCheckpointToLatestTransaction() throws Exception {
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        SavingsRulesService checkpointingService = newService(
+                new MerchantNormalizer(), ruleCheckpointStore, SavingsEventStore.TRANSIENT);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(6L, 100L, new BigDecimal("1945.00"), "Salary", LocalDate.of(2015, 7, 25)),
+                new Transaction(7L, 100L, new BigDecimal("-9.76"), "Amazon", LocalDate.of(2015, 7, 8))
+        ));
+        checkpointingService.executeRule(roundupRule);
+        assertEquals(new RuleCheckpoint(1L, 7L, LocalDate.of(2015, 7, 25)), ruleCheckpointStore.checkpointFor(1L));
+    }
+
+    @Test
+    public void streamRuleShouldHandEventsToConsumerInOrder() throws Exception {
+        SavingsRule roundUpRule = SavingsRule.createRoundupRule(1L, 100L,  new BigDecimal("5.00"),11L, 22L);
+        when(transactionsService.latestTransactionsForUser(eq(roundUpRule.getUserId()))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-95.50"), "Lunch", LocalDate.now()),
+                new Transaction(2L, 100L, new BigDecimal("-12.00"), "Banana for scale", LocalDate.now())
+        ));
+        List<SavingsEvent> expected = new StandardSavingsRulesService(transactionsService).executeRule(roundUpRule);
+
+        List<SavingsEvent> streamed = new ArrayList<>();
+        savingsRulesService.streamRule(roundUpRule, false, streamed::add);
+        assertEquals(expected, streamed);
+        savingsRulesService.streamRule(roundUpRule, false, savingsEvent -> { throw new AssertionError("Already processed"); });
+    }
+
+    @Test
+    public void ingestTransactionsShouldEvaluateOnlyTheNewTransactions() throws Exception {
+        SavingsRule roundupRule = savingsRulesService.saveRule(SavingsRule.createRoundupRule(null, 100L, new BigDecimal("2.00"), 11L));
+        savingsRulesService.saveRule(SavingsRule.createGuiltyPleasureRule(null, 100L, "Starbucks", new BigDecimal("3.00"), 11L, 22L));
+        Transaction coffee = new Transaction(8L, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26));
+
+        List<SavingsEvent> savingsEvents = savingsRulesService.ingestTransactions(Collections.singletonList(coffee));
+
+        verify(transactionsService).invalidate(100L);
+        verify(transactionsService, times(0)).latestTransactionsForUser(100L);
+        assertEquals(3, savingsEvents.size());
+        assertEquals(new BigDecimal("0.45"), savingsEvents.get(0).getAmount());
+        assertEquals(roundupRule.getId(), savingsEvents.get(0).getSavingsRuleId());
+        assertEquals(new BigDecimal("1.50"), savingsEvents.get(1).getAmount());
+        assertEquals(8L, savingsEvents.get(2).getTriggerId().longValue());
+
+        // a later pull processes the earlier transaction it had not seen, but not the ingested one again
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(5L, 100L, new BigDecimal("-1.00"), "Bread", LocalDate.of(2015, 7, 25)),
+                coffee, new Transaction(9L, 100L, new BigDecimal("-0.50"), "Candy", LocalDate.of(2015, 7, 27))));
+        List<SavingsEvent> pulled = savingsRulesService.executeActiveRules(100L);
+        assertEquals(2, pulled.size());
+        assertEquals(5L, pulled.get(0).getTriggerId().longValue());
+        assertEquals(9L, pulled.get(1).getTriggerId().longValue());
+    }
+
+    @Test
+    public void ingestTransactionsShouldRecordThePushedTransactionsWithTheCheckpoints() throws Exception {
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        SavingsRulesService ingestingService = newService(new MerchantNormalizer(), ruleCheckpointStore, SavingsEventStore.TRANSIENT);
+        SavingsRule roundupRule = ingestingService.saveRule(SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L));
+        Transaction coffee = new Transaction(8L, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26));
+        assertEquals(1, ingestingService.ingestTransactions(Collections.singletonList(coffee)).size());
+        assertTrue(ingestingService.ingestTransactions(Collections.singletonList(coffee)).isEmpty());
+
+        // the pull does not depend on the emissions recorded by the deduplicator, which may have dropped them
+        SavingsRulesService pullingService = newService(new MerchantNormalizer(), ruleCheckpointStore, SavingsEventStore.TRANSIENT);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(5L, 100L, new BigDecimal("-1.00"), "Bread", LocalDate.of(2015, 7, 25)), coffee));
+        List<SavingsEvent> pulled = pullingService.executeRule(roundupRule);
+
+        assertEquals(Collections.singletonList(5L), pulled.stream().map(SavingsEvent::getTriggerId).collect(Collectors.toList()));
+        assertEquals(new RuleCheckpoint(1L, 8L, LocalDate.of(2015, 7, 26)), ruleCheckpointStore.checkpointFor(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ingestTransactionsShouldRejectTransactionsWithoutId() throws Exception {
+        savingsRulesService.ingestTransactions(Collections.singletonList(
+                new Transaction(null, 100L, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26))));
+    }
+
+    @Test
+    public void executeRuleShouldEvaluateTheHistoryPageByPage() throws Exception {
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        TransactionsService cachingTransactionsService = new CachingTransactionsService(transactionsService, 1000, Duration.ofMinutes(5));
+        SavingsRulesService pagingService = new StandardSavingsRulesService(new InMemorySavingsRuleRepository(), cachingTransactionsService,
+                new ExecutorAsyncTransactionsService(cachingTransactionsService, Runnable::run), new MerchantNormalizer(),
+                RuleEvaluators.standard(new MerchantNormalizer()), ruleCheckpointStore, SavingsEventStore.TRANSIENT,
+                new SavingsEventDeduplicator(1000, 0.01), new MetricRegistry(), new PlatformTaskExecutors(), 1, 2);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        List<Transaction> history = Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.of(2015, 7, 1)),
+                new Transaction(5L, 100L, new BigDecimal("-9.76"), "Amazon", LocalDate.of(2015, 7, 8)),
+                new Transaction(3L, 100L, new BigDecimal("1945.00"), "Salary", LocalDate.of(2015, 7, 25)),
+                new Transaction(4L, 100L, new BigDecimal("-1.10"), "Candy", LocalDate.of(2015, 7, 15)),
+                new Transaction(2L, 100L, new BigDecimal("-0.50"), "Candy", LocalDate.of(2015, 7, 2))
+        );
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(history);
+        doAnswer(invocation -> TransactionPage.of(history, invocation.getArgument(1), 2))
+                .when(transactionsService).transactionsForUser(eq(100L), anyLong(), eq(2));
+
+        List<SavingsEvent> savingsEvents = pagingService.executeRule(roundupRule);
+
+        // the pages of a long history are fetched one by one, the history is never fetched as a whole
+        verify(transactionsService, times(3)).transactionsForUser(eq(100L), anyLong(), eq(2));
+        verify(transactionsService, never()).latestTransactionsForUser(eq(100L));
+        assertEquals(new StandardSavingsRulesService(transactionsService).executeRule(roundupRule), savingsEvents);
+        // the checkpoint moves past the highest id of all pages, not of the last page
+        assertEquals(new RuleCheckpoint(1L, 5L, LocalDate.of(2015, 7, 25)), ruleCheckpointStore.checkpointFor(1L));
+    }
+
+    @Test
+    public void executeRuleBetweenDatesShouldLeaveCheckpointAndEventsUntouched() throws Exception {
+        RuleCheckpointStore ruleCheckpointStore = new InMemoryRuleCheckpointStore();
+        SavingsRulesService checkpointingService = newService(
+                new MerchantNormalizer(), ruleCheckpointStore, SavingsEventStore.TRANSIENT);
+        SavingsRule roundupRule = SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L);
+        when(transactionsService.latestTransactionsForUser(eq(100L))).thenReturn(Arrays.asList(
+                new Transaction(1L, 100L, new BigDecimal("-3.55"), "Lunch", LocalDate.of(2015, 7, 1)),
+                new Transaction(2L, 100L, new BigDecimal("-9.76"), "Amazon", LocalDate.of(2015, 7, 8)),
+                new Transaction(3L, 100L, new BigDecimal("-1.10"), "Candy", LocalDate.of(2015, 7, 15))
+        ));
+
+        List<SavingsEvent> savingsEvents = checkpointingService.executeRule(roundupRule, LocalDate.of(2015, 7, 5), LocalDate.of(2015, 7, 10));
+
+        assertEquals(Collections.singletonList(new SavingsEvent(100L, 11L, roundupRule, rule_application, LocalDate.of(2015, 7, 8), new BigDecimal("0.24"), 2L)),
+                savingsEvents);
+        assertNull(ruleCheckpointStore.checkpointFor(1L));
+        // the event of the window was not emitted, a regular execution still emits all of them
+        List<SavingsEvent> executed = checkpointingService.executeRule(roundupRule);
+        assertEquals(Arrays.asList(1L, 2L, 3L), executed.stream().map(SavingsEvent::getTriggerId).collect(Collectors.toList()));
+        // the window is recomputed even after the checkpoint has moved past it
+        assertEquals(savingsEvents, checkpointingService.executeRule(roundupRule, LocalDate.of(2015, 7, 5), LocalDate.of(2015, 7, 10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void executeRuleBetweenDatesShouldRejectReversedRange() throws Exception {
+        savingsRulesService.executeRule(SavingsRule.createRoundupRule(1L, 100L, new BigDecimal("2.00"), 11L),
+                LocalDate.of(2015, 7, 10), LocalDate.of(2015, 7, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ingestTransactionsShouldRejectTransactionsWithoutUser() throws Exception {
+        savingsRulesService.ingestTransactions(Collections.singletonList(
+                new Transaction(8L, null, new BigDecimal("-3.55"), "Starbucks", LocalDate.of(2015, 7, 26))));
+    }
+
+}
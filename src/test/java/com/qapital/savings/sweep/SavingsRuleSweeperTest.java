@@ -0,0 +1,107 @@
+package com.qapital.savings.sweep;
+
+import com.codahale.metrics.MetricRegistry;
+import com.qapital.concurrent.PlatformTaskExecutors;
+import com.qapital.savings.rule.SavingsRuleRepository;
+import com.qapital.savings.rule.SavingsRulesService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+public class SavingsRuleSweeperTest {
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private SavingsRuleRepository savingsRuleRepository;
+
+    @Mock
+    private SavingsRulesService savingsRulesService;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private SavingsRuleSweeper newSweeper(SweepProgress sweepProgress) {
+        return new SavingsRuleSweeper(savingsRuleRepository, savingsRulesService, sweepProgress, new PlatformTaskExecutors(), 4, 8, 0L, metricRegistry);
+    }
+
+    @Test
+    public void shouldSweepAllUsersAndClearProgress() throws Exception {
+        long[] userIds = new long[1000];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = i + 1;
+        }
+        when(savingsRuleRepository.userIds()).thenReturn(userIds);
+        Set<Long> sweptUserIds = ConcurrentHashMap.newKeySet();
+        when(savingsRulesService.executeActiveRules(anyLong())).then(invocation -> {
+            sweptUserIds.add(invocation.getArgument(0));
+            return Collections.emptyList();
+        });
+        SweepProgress sweepProgress = new SweepProgress(folder.getRoot().toPath().resolve("progress"));
+        SavingsRuleSweeper sweeper = newSweeper(sweepProgress);
+
+        assertEquals(1000, sweeper.sweep());
+        sweeper.shutdown();
+
+        assertEquals(1000, sweptUserIds.size());
+        assertEquals(SweepProgress.NONE, sweepProgress.lastSweptUserId());
+        assertEquals(1000, metricRegistry.counter("savings.sweep.users").getCount());
+    }
+
+    @Test
+    public void shouldResumeAfterSavedProgress() throws Exception {
+        when(savingsRuleRepository.userIds()).thenReturn(new long[] {10L, 20L, 30L, 40L});
+        Set<Long> sweptUserIds = ConcurrentHashMap.newKeySet();
+        when(savingsRulesService.executeActiveRules(anyLong())).then(invocation -> {
+            sweptUserIds.add(invocation.getArgument(0));
+            return Collections.emptyList();
+        });
+        SweepProgress sweepProgress = new SweepProgress(folder.getRoot().toPath().resolve("sweep").resolve("progress"));
+        sweepProgress.save(25L);
+        SavingsRuleSweeper sweeper = newSweeper(sweepProgress);
+
+        assertEquals(2, sweeper.sweep());
+        sweeper.shutdown();
+
+        assertEquals(2, sweptUserIds.size());
+        assertTrue(sweptUserIds.contains(30L) && sweptUserIds.contains(40L));
+    }
+
+    @Test
+    public void shouldCountFailuresAndContinue() throws Exception {
+        when(savingsRuleRepository.userIds()).thenReturn(new long[] {1L, 2L, 3L});
+        AtomicInteger executions = new AtomicInteger();
+        when(savingsRulesService.executeActiveRules(anyLong())).then(invocation -> {
+            executions.incrementAndGet();
+            if(invocation.<Long>getArgument(0) == 2L) {
+                throw new IllegalStateException("bank unavailable");
+            }
+            return Collections.emptyList();
+        });
+        SavingsRuleSweeper sweeper = newSweeper(new SweepProgress(folder.getRoot().toPath().resolve("progress")));
+
+        assertEquals(3, sweeper.sweep());
+        sweeper.shutdown();
+
+        assertEquals(3, executions.get());
+        assertEquals(1, metricRegistry.counter("savings.sweep.failures").getCount());
+        assertEquals(2, metricRegistry.counter("savings.sweep.users").getCount());
+    }
+
+}